@@ -0,0 +1,135 @@
+package com.safeher.app;
+
+import android.content.BroadcastReceiver;
+import android.content.Context;
+import android.content.Intent;
+import android.content.IntentFilter;
+import android.os.BatteryManager;
+import android.os.Build;
+import android.os.PowerManager;
+import android.util.Log;
+
+import androidx.core.content.ContextCompat;
+
+/**
+ * AnalysisGovernor
+ *
+ * Picks a quality tier for the background gesture camera from the device's
+ * thermal status and battery level, so a hot phone or one at 5% does not
+ * keep paying full analysis cost. Each AnalysisTier fixes the analysis
+ * resolution, the minimum interval between analysed frames and the sampling
+ * step. The interval is requested from the camera as an AE target frame-rate
+ * range, so the sensor itself slows down; frames that still arrive early are
+ * dropped.
+ *
+ * Thermal status comes from PowerManager (Android 10+); battery from the
+ * sticky ACTION_BATTERY_CHANGED broadcast. Charging lifts the battery limit.
+ * The stricter of the two wins. Transitions are logged and reported to the
+ * listener on the main thread.
+ */
+public class AnalysisGovernor {
+
+    private static final String TAG = "AnalysisGovernor";
+
+    // Battery thresholds (percent) for tiers 1..3 when not charging
+    private static final int BATTERY_REDUCED = 30;
+    private static final int BATTERY_LOW     = 15;
+    private static final int BATTERY_MINIMAL = 5;
+
+    public interface Listener {
+        void onTierChanged(AnalysisTier from, AnalysisTier to);
+    }
+
+    private final Context  ctx;
+    private final Listener listener;
+
+    private volatile AnalysisTier tier = AnalysisTier.TIERS[0];
+    private int     thermalTier = 0;
+    private int     batteryTier = 0;
+    private int     batteryPct  = 100;
+    private boolean charging    = false;
+
+    private PowerManager.OnThermalStatusChangedListener thermalListener;
+
+    private final BroadcastReceiver batteryReceiver = new BroadcastReceiver() {
+        @Override
+        public void onReceive(Context c, Intent intent) {
+            onBattery(intent);
+        }
+    };
+
+    public AnalysisGovernor(Context ctx, Listener listener) {
+        this.ctx      = ctx.getApplicationContext();
+        this.listener = listener;
+    }
+
+    /** Register for thermal + battery updates. Call on the main thread. */
+    public void start() {
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.Q) {
+            PowerManager pm = (PowerManager) ctx.getSystemService(Context.POWER_SERVICE);
+            if (pm != null) {
+                thermalTier = thermalToTier(pm.getCurrentThermalStatus());
+                thermalListener = status -> {
+                    thermalTier = thermalToTier(status);
+                    reevaluate("thermal status " + status);
+                };
+                pm.addThermalStatusListener(ContextCompat.getMainExecutor(ctx), thermalListener);
+            }
+        }
+        Intent sticky = ctx.registerReceiver(batteryReceiver,
+            new IntentFilter(Intent.ACTION_BATTERY_CHANGED));
+        if (sticky != null) onBattery(sticky);
+        reevaluate("start");
+    }
+
+    public void stop() {
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.Q && thermalListener != null) {
+            PowerManager pm = (PowerManager) ctx.getSystemService(Context.POWER_SERVICE);
+            if (pm != null) pm.removeThermalStatusListener(thermalListener);
+            thermalListener = null;
+        }
+        try { ctx.unregisterReceiver(batteryReceiver); } catch (Exception ignored) {}
+    }
+
+    public AnalysisTier getTier() { return tier; }
+
+    // ── Inputs ────────────────────────────────────────────────────────────────
+
+    private void onBattery(Intent intent) {
+        int level  = intent.getIntExtra(BatteryManager.EXTRA_LEVEL, -1);
+        int scale  = intent.getIntExtra(BatteryManager.EXTRA_SCALE, 100);
+        int status = intent.getIntExtra(BatteryManager.EXTRA_STATUS, -1);
+        if (level < 0 || scale <= 0) return;
+        batteryPct = level * 100 / scale;
+        charging   = status == BatteryManager.BATTERY_STATUS_CHARGING
+                  || status == BatteryManager.BATTERY_STATUS_FULL;
+
+        int t;
+        if (charging)                          t = 0;
+        else if (batteryPct <= BATTERY_MINIMAL) t = 3;
+        else if (batteryPct <= BATTERY_LOW)     t = 2;
+        else if (batteryPct <= BATTERY_REDUCED) t = 1;
+        else                                    t = 0;
+        if (t != batteryTier) {
+            batteryTier = t;
+            reevaluate("battery " + batteryPct + "%" + (charging ? " charging" : ""));
+        }
+    }
+
+    private static int thermalToTier(int status) {
+        if (Build.VERSION.SDK_INT < Build.VERSION_CODES.Q) return 0;
+        if (status >= PowerManager.THERMAL_STATUS_CRITICAL) return 3;
+        if (status >= PowerManager.THERMAL_STATUS_SEVERE)   return 2;
+        if (status >= PowerManager.THERMAL_STATUS_MODERATE) return 1;
+        return 0;
+    }
+
+    private void reevaluate(String reason) {
+        AnalysisTier next = AnalysisTier.TIERS[Math.max(thermalTier, batteryTier)];
+        AnalysisTier prev = tier;
+        if (next == prev) return;
+        tier = next;
+        Log.i(TAG, "Tier " + prev.name + " → " + next + " (" + reason + ")");
+        listener.onTierChanged(prev, next);
+    }
+}
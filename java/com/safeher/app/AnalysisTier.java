@@ -0,0 +1,52 @@
+package com.safeher.app;
+
+/**
+ * AnalysisTier
+ *
+ * One quality tier of the background gesture camera: analysis resolution,
+ * minimum interval between analysed frames and sampling step. AnalysisGovernor
+ * picks the tier; the table lives here, in plain Java, so GestureReplayHarness
+ * can replay at the same frame intervals the service uses.
+ */
+public final class AnalysisTier {
+
+    public final int    level;
+    public final String name;
+    public final int    width, height;
+    public final long   minFrameIntervalMs;
+    public final int    step;
+
+    AnalysisTier(int level, String name, int width, int height, long minFrameIntervalMs, int step) {
+        this.level              = level;
+        this.name               = name;
+        this.width              = width;
+        this.height             = height;
+        this.minFrameIntervalMs = minFrameIntervalMs;
+        this.step               = step;
+    }
+
+    // The step shrinks with the resolution, so every tier samples the same
+    // 80×60 grid and the detectors see the same geometry. Sampling costs tens
+    // of µs per frame; the savings come from resolution and frame rate, so
+    // the step never gets coarser on the way down.
+    public static final AnalysisTier[] TIERS = {
+        new AnalysisTier(0, "FULL",    640, 480, 0,   8),
+        new AnalysisTier(1, "REDUCED", 480, 360, 66,  6),
+        new AnalysisTier(2, "LOW",     320, 240, 125, 4),
+        new AnalysisTier(3, "MINIMAL", 320, 240, 250, 4),
+    };
+
+    /** Frame rate this tier needs from the camera, or 0 for no limit. */
+    public int targetFps() {
+        return minFrameIntervalMs > 0
+            ? (int) ((1000 + minFrameIntervalMs - 1) / minFrameIntervalMs) : 0;
+    }
+
+    public boolean sameResolution(AnalysisTier o) {
+        return width == o.width && height == o.height;
+    }
+
+    @Override public String toString() {
+        return name + " (" + width + "x" + height + ", ≥" + minFrameIntervalMs + "ms, step " + step + ")";
+    }
+}
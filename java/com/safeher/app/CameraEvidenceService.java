@@ -6,33 +6,104 @@ import android.app.NotificationManager;
 import android.app.Service;
 import android.content.Context;
 import android.content.Intent;
+import android.content.SharedPreferences;
 import android.graphics.ImageFormat;
-import android.graphics.SurfaceTexture;
+import android.graphics.Rect;
+import android.graphics.YuvImage;
 import android.hardware.camera2.*;
-import android.hardware.camera2.params.StreamConfigurationMap;
 import android.media.Image;
 import android.media.ImageReader;
+import android.os.Build;
 import android.os.Handler;
 import android.os.HandlerThread;
 import android.os.IBinder;
 import android.os.Looper;
+import android.os.SystemClock;
 import android.util.Log;
 import android.util.Size;
 import android.view.Surface;
 
 import java.io.File;
-import java.io.FileOutputStream;
-import java.nio.ByteBuffer;
 import java.text.SimpleDateFormat;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Date;
+import java.util.List;
 import java.util.Locale;
+import java.util.TimeZone;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * CameraEvidenceService
  * Opens the back camera silently in the background (no preview needed).
  * Takes a JPEG photo every 5 seconds and saves to SaveSouls_Evidence folder.
- * Uses Camera2 API with a dummy SurfaceTexture so no preview is shown.
+ *
+ * ZERO SHUTTER LAG: a low-cost repeating request streams YUV into a small
+ * ZslRingBuffer, so AF/AE stay converged and each photo is picked from
+ * frames that already exist. A repeat start (e.g. a second trigger) saves
+ * the frame nearest that moment straight away. One-off still captures are
+ * only used until the ring has its first frame.
+ *
+ * BURST (PREF_BURST, on by default): each interval fires a short
+ * captureBurst into the ring, and the frames are scored for sharpness
+ * (variance of Laplacian, SharpnessScorer) on a separate thread; only the
+ * sharpest is saved. Scoring coarsens its sampling if it runs over budget.
+ *
+ * Files are written by EvidenceWriter on its own thread (bounded queue,
+ * pooled buffers, fsync policy from PREF_FSYNC); capture code only copies
+ * or encodes into a pooled buffer and moves on.
+ *
+ * VIDEO (PREF_EVIDENCE_MODE = video / both): the repeating request also
+ * renders into a VideoSegmentRecorder, which writes rolling, crash-safe
+ * H.264 MP4 segments. In video-only mode no periodic photos are taken.
+ *
+ * FRONT CAMERA: a CompanionCamera photographs whoever is in front of the
+ * phone. Where getConcurrentCameraIds() allows it, both cameras stream
+ * together and the front one is sampled half an interval after the back;
+ * otherwise every ALTERNATE_EVERY-th slot briefly hands the sensor to the
+ * front camera (readers stay allocated, so only the device is reopened).
+ * Alternation is skipped while video needs the back camera. Per-camera
+ * cadence is shown in the notification and logged.
+ *
+ * PACING: SceneChangePacer hashes each back-camera photo and the live
+ * stream. Repeats of the last photo are skipped and the interval backs off;
+ * a big scene change pulls the next photo in, so MAX_PHOTOS goes on
+ * distinct evidence rather than a bag lining.
+ *
+ * ENCODING: frames are copied out of the ring and JPEG-encoded on a worker,
+ * so the camera thread only does memcpy. EvidenceQualityLadder lowers the
+ * quality, then halves the size, as free storage or battery runs low.
+ *
+ * LOW LIGHT: when a photo's mean luma is below LowLightStacker.LOW_LIGHT_LUMA
+ * the burst is taken even with burst mode off, and its frames are aligned
+ * (global translation) and averaged into one denoised photo instead.
+ *
+ * FACES: FaceRegionDetector looks at each frame before it is encoded. A
+ * frame with a face is encoded FACE_RUNG_BOOST rungs higher on the quality
+ * ladder, and once MAX_PHOTOS are kept it replaces the oldest faceless
+ * photo (never the first) instead of being dropped; capture continues past
+ * the cap while there is something to replace, up to CANDIDATE_FACTOR times
+ * as many frames.
+ *
+ * STARTUP: camera ids and sizes come from CameraSetup's cache (pre-warmed
+ * when protection starts). Callers start the service with startIntent(),
+ * which stamps the trigger time; trigger-to-first-photo is logged with a
+ * per-phase breakdown and kept per incident in PREF_TTFP_LOG.
+ *
+ * SNAPSHOT (EXTRA_SNAPSHOT, see SnapshotService): SNAPSHOT_PHOTOS photos
+ * SNAPSHOT_INTERVAL_MS apart, then stop. No video, front camera, scene
+ * pacing or timelapse. The first photo is the ring's first frame rather
+ * than a still capture, and its trigger-to-photo time is checked against
+ * SNAPSHOT_TTFP_TARGET_MS. The mode is read from the first start, which is
+ * why the camera opens in onStartCommand; a normal start while a snapshot
+ * runs turns it into full evidence capture, with the evidence mode's video
+ * and front camera set up then.
  */
 public class CameraEvidenceService extends Service {
 
@@ -40,6 +111,62 @@ public class CameraEvidenceService extends Service {
     private static final long   CAPTURE_INTERVAL_MS = 5000; // photo every 5s
     private static final int    MAX_PHOTOS    = 60; // max 60 photos = 5 min
 
+    // Zero-shutter-lag ring: slots, copy rate and JPEG quality for ring frames
+    private static final int    ZSL_SLOTS            = 4;
+    private static final long   ZSL_COPY_INTERVAL_MS = 100;
+
+    // Off-thread JPEG encoding (quality and scale from EvidenceQualityLadder)
+    private static final int    ENCODE_POOL          = 2;    // NV21 frames awaiting encode
+
+    // Burst + sharpness selection
+    public  static final String PREF_BURST           = "evidence_burst";
+    public  static final int    BURST_FRAMES         = ZSL_SLOTS;
+    private static final long   BURST_SETTLE_MS      = 50;   // last images trail the results
+    private static final long   SCORE_BUDGET_MS      = CAPTURE_INTERVAL_MS / 4;
+    private static final int    MAX_SCORE_DECIMATE   = 16;
+
+    // Low light: the burst is aligned and averaged instead of picking one frame
+    private static final long   STACK_BUDGET_MS      = CAPTURE_INTERVAL_MS / 4;
+    private static final int    MIN_STACK_FRAMES     = 2;
+
+    // Faces: better quality, and room made for them at the photo cap
+    private static final long   FACE_BUDGET_MS       = 40;
+    private static final int    FACE_RUNG_BOOST      = 2;
+    // Frames tried per kept photo. Relative to the run's own cap, so a
+    // five-photo snapshot gives up after ten frames instead of the full run's
+    private static final int    CANDIDATE_FACTOR     = 2;
+
+    // Evidence file writer: queue depth and fsync policy ("never" / "each" / "periodic")
+    public  static final String PREF_FSYNC           = "evidence_fsync";
+    private static final int    WRITER_QUEUE         = 8;
+
+    // Evidence mode, chosen on the SOS screen
+    public  static final String PREF_EVIDENCE_MODE   = "evidence_mode";
+    public  static final String MODE_PHOTO           = "photo";
+    public  static final String MODE_VIDEO           = "video";
+    public  static final String MODE_BOTH            = "both";
+    private static final long   MAX_VIDEO_MS         = 30 * 60 * 1000; // 30 min
+
+    // Front camera scheduling
+    private static final int    ALTERNATE_EVERY       = 3;    // 1 slot in 3 when alternating
+    private static final long   FRONT_SETTLE_MS       = 400;  // AE/AF after first frame
+    private static final long   FRONT_SLOT_TIMEOUT_MS = 3000;
+
+    // Time to first photo, per incident
+    public  static final String EXTRA_TRIGGER_AT      = "trigger_at";    // elapsedRealtime
+    public  static final String PREF_TTFP_LOG         = "evidence_ttfp_log";
+    private static final int    TTFP_HISTORY          = 20;
+
+    // Silent snapshot: a few photos, then stop
+    public  static final String EXTRA_SNAPSHOT        = "snapshot";
+    private static final int    SNAPSHOT_PHOTOS       = 5;
+    private static final long   SNAPSHOT_INTERVAL_MS  = 1000;
+    private static final long   SNAPSHOT_TTFP_TARGET_MS = 500;
+    private static final long   FIRST_FRAME_TIMEOUT_MS  = 1000;   // then fall back to a still
+
+    // Scene-change pacing of the photo budget
+    private static final long   SCENE_CHECK_MS        = 300;
+
     /** Broadcast sent after each photo: includes EXTRA_PHOTO_COUNT */
     public static final String ACTION_PHOTO_TAKEN  = "com.safeher.app.PHOTO_TAKEN";
     public static final String EXTRA_PHOTO_COUNT   = "photo_count";
@@ -51,13 +178,72 @@ public class CameraEvidenceService extends Service {
     private CaptureRequest.Builder captureBuilder;
     private CameraCaptureSession captureSession;
     private ImageReader         imageReader;
+    private ImageReader         yuvReader;
+    private ZslRingBuffer       zsl;
+    private byte[]              zslFrame;      // camera thread only
+    private long                lastZslCopyAt = 0;
+    private CaptureRequest.Builder zslBuilder;
+
+    // Burst state: burstActive lifts the ring copy throttle while a burst
+    // lands; frames are copied out and scored on scoreExecutor
+    private boolean             burstMode;
+    private volatile boolean    burstActive   = false;
+    // Set from capturePhoto() until the next capture is scheduled, so a
+    // scene-change pull cannot start a second burst over one being scored
+    private volatile boolean    captureInFlight = false;
+    private byte[][]            burstFrames;
+    private final long[]        burstArrived  = new long[BURST_FRAMES];
+    private ExecutorService     scoreExecutor;
+    private int                 scoreDecimate = 4;   // score thread only
+    private volatile boolean    lowLight      = false;
+    private LowLightStacker     stacker;             // score thread only
+    private byte[]              stackFrame;          // score thread only
+    private int                 stackFrames   = BURST_FRAMES;
+
+    private ExecutorService     encodeExecutor;
+    private EvidenceQualityLadder ladder;
+    private final ArrayBlockingQueue<byte[]> encodePool = new ArrayBlockingQueue<>(ENCODE_POOL);
+    private byte[]              halfFrame;     // encode thread only
+    private final AtomicInteger photoSeq = new AtomicInteger();
+    private final FaceRegionDetector faceDetector = new FaceRegionDetector(); // encode thread only
+    private final ArrayDeque<String> faceless = new ArrayDeque<>();          // encode thread only
+    private volatile int        facelessCount = 0;
+    private int                 faceCount     = 0;                           // encode thread only
+    // Names of this incident's photos, for eviction and the timelapse
+    private final ArrayList<String> incidentFiles = new ArrayList<>();   // guarded by itself
+
+    private final SceneChangePacer pacer = new SceneChangePacer(CAPTURE_INTERVAL_MS);
+    private long                lastSceneCheckAt = 0;   // camera thread only
+    // Video segments (null in photo mode)
+    private boolean             photosOn = true;
+    private boolean             videoOn  = false;
+    private VideoSegmentRecorder video;
+    private Surface             videoSurface;
+    // Back camera id, kept for reopening after a front slot
+    private String              backId;
+    private long                createdAt, triggerAt, openedAt, configuredAt;
+    private long                setupMs;
+    private boolean             setupWarm;
+    private boolean             configuredOnce = false;
+    private final CompanionCamera.Cadence backCadence = new CompanionCamera.Cadence("back");
+
+    // Front camera (null when absent or not schedulable)
+    private CompanionCamera     front;
+    private boolean             concurrent     = false;
+    private int                 slot           = 0;
+    private boolean             frontSlotActive = false;   // camera thread only
     private HandlerThread       cameraThread;
     private Handler             cameraHandler;
     private final Handler       mainHandler = new Handler(Looper.getMainLooper());
 
     private File   evidenceDir;
-    private int    photoCount = 0;
+    private EvidenceWriter writer;
+    private volatile int photoCount = 0;
+    private volatile int maxPhotos  = MAX_PHOTOS;
     private boolean capturing = false;
+    private boolean opened    = false;
+    private volatile boolean snapshot = false;
+    private boolean firstFromRing = false;   // camera thread only
 
     // ── LIFECYCLE ─────────────────────────────────────────────
 
@@ -65,6 +251,8 @@ public class CameraEvidenceService extends Service {
     public void onCreate() {
         super.onCreate();
         isRunning = true;
+        createdAt = SystemClock.elapsedRealtime();
+        SafeHerService.refreshFix(this);   // EXIF GPS for snapshot / gesture evidence too
 
         // Required: start as foreground service (camera type requires it on Android 9+)
         createNotificationChannel();
@@ -79,6 +267,9 @@ public class CameraEvidenceService extends Service {
         // Create evidence directory
         evidenceDir = new File(getExternalFilesDir(null), "SaveSouls_Evidence");
         if (!evidenceDir.exists()) evidenceDir.mkdirs();
+        writer = new EvidenceWriter(evidenceDir, WRITER_QUEUE, EvidenceWriter.parsePolicy(
+            getSharedPreferences("SaveSouls", MODE_PRIVATE).getString(PREF_FSYNC, "periodic")));
+        writer.start();
 
         cameraManager = (CameraManager) getSystemService(Context.CAMERA_SERVICE);
 
@@ -86,11 +277,53 @@ public class CameraEvidenceService extends Service {
         cameraThread = new HandlerThread("CameraThread");
         cameraThread.start();
         cameraHandler = new Handler(cameraThread.getLooper());
+        scoreExecutor = Executors.newSingleThreadExecutor();
+        encodeExecutor = Executors.newSingleThreadExecutor();
+        ladder = new EvidenceQualityLadder(this, evidenceDir);
+        burstMode = getSharedPreferences("SaveSouls", MODE_PRIVATE)
+            .getBoolean(PREF_BURST, true);
+        readEvidenceMode();
+    }
 
-        openCamera();
+    /** Photos and/or video, as chosen on the SOS screen. */
+    private void readEvidenceMode() {
+        String mode = getSharedPreferences("SaveSouls", MODE_PRIVATE)
+            .getString(PREF_EVIDENCE_MODE, MODE_PHOTO);
+        photosOn = !MODE_VIDEO.equals(mode);
+        videoOn  = MODE_VIDEO.equals(mode) || MODE_BOTH.equals(mode);
     }
 
-    @Override public int onStartCommand(Intent i, int f, int s) { return START_NOT_STICKY; }
+    @Override
+    public int onStartCommand(Intent i, int f, int s) {
+        if (triggerAt == 0 && i != null) triggerAt = i.getLongExtra(EXTRA_TRIGGER_AT, 0);
+        boolean snap = i != null && i.getBooleanExtra(EXTRA_SNAPSHOT, false);
+        if (!opened) {
+            opened = true;
+            if (snap) {
+                snapshot  = true;
+                maxPhotos = SNAPSHOT_PHOTOS;
+                photosOn  = true;
+                videoOn   = false;
+            }
+            openCamera();
+            return START_NOT_STICKY;
+        }
+        if (snapshot && !snap) {
+            // SOS while a snapshot runs: carry on as full evidence capture
+            snapshot  = false;
+            maxPhotos = MAX_PHOTOS;
+            cameraHandler.post(this::upgradeFromSnapshot);
+            Log.d(TAG, "Snapshot upgraded to full evidence capture");
+        } else if (snapshot) {
+            maxPhotos = photoCount + SNAPSHOT_PHOTOS;   // tapped again: a few more
+        }
+        // Started again while already capturing: keep the frame of this moment
+        if (capturing && cameraHandler != null) {
+            long at = SystemClock.elapsedRealtime();
+            cameraHandler.post(() -> takeRingPhoto(at));
+        }
+        return START_NOT_STICKY;
+    }
     @Override public IBinder onBind(Intent i) { return null; }
 
     @Override
@@ -100,38 +333,45 @@ public class CameraEvidenceService extends Service {
         isRunning = false;
         mainHandler.removeCallbacksAndMessages(null);
         closeCamera();
+        if (scoreExecutor != null) scoreExecutor.shutdownNow();
+        if (encodeExecutor != null) {
+            // Let queued frames reach the writer before it stops
+            encodeExecutor.shutdown();
+            try { encodeExecutor.awaitTermination(2, TimeUnit.SECONDS); }
+            catch (InterruptedException ignored) {}
+        }
+        if (writer != null) {
+            writer.stop();
+            Log.d(TAG, "Evidence writer: " + writer.statsLine());
+        }
+        // Once the files are down, queue this incident's photos for a timelapse
+        if (!snapshot && photoCount >= TimelapseService.MIN_FRAMES) {
+            synchronized (incidentFiles) { TimelapseService.enqueue(this, incidentFiles); }
+        }
         if (cameraThread != null) {
             cameraThread.quitSafely();
             cameraThread = null;
         }
-        Log.d(TAG, "CameraEvidenceService stopped, saved " + photoCount + " photos");
+        Log.d(TAG, "CameraEvidenceService stopped, saved " + photoCount + " photos — "
+            + backCadence + (front != null ? "; " + front.cadence
+            + (concurrent ? " (concurrent)" : ", front switch " + front.getLastOpenMs() + "ms")
+            : "") + "; scene pacing " + pacer + "; " + faceCount + " with faces");
     }
 
     // ── CAMERA OPEN ───────────────────────────────────────────
 
     private void openCamera() {
         try {
-            // Find back camera
-            String cameraId = null;
-            for (String id : cameraManager.getCameraIdList()) {
-                CameraCharacteristics ch = cameraManager.getCameraCharacteristics(id);
-                Integer facing = ch.get(CameraCharacteristics.LENS_FACING);
-                if (facing != null && facing == CameraCharacteristics.LENS_FACING_BACK) {
-                    cameraId = id;
-                    break;
-                }
-            }
-            if (cameraId == null) {
-                Log.e(TAG, "No back camera found");
+            // Ids and sizes from the cache (probed at most once per OS build)
+            setupWarm = CameraSetup.isWarm();
+            long t0 = SystemClock.elapsedRealtime();
+            CameraSetup setup = CameraSetup.get(this);
+            setupMs = SystemClock.elapsedRealtime() - t0;
+            if (setup == null) {
                 stopSelf();
                 return;
             }
-
-            // Pick a reasonable capture size (1280x720 or smaller for speed)
-            CameraCharacteristics ch = cameraManager.getCameraCharacteristics(cameraId);
-            StreamConfigurationMap map = ch.get(
-                CameraCharacteristics.SCALER_STREAM_CONFIGURATION_MAP);
-            Size captureSize = chooseCaptureSize(map);
+            Size captureSize = setup.jpegSize;
 
             // ImageReader to receive JPEG frames
             imageReader = ImageReader.newInstance(
@@ -139,11 +379,96 @@ public class CameraEvidenceService extends Service {
                 ImageFormat.JPEG, 2);
             imageReader.setOnImageAvailableListener(this::saveImage, cameraHandler);
 
+            // Repeating YUV stream feeding the zero-shutter-lag ring
+            Size zslSize = setup.yuvSize;
+            yuvReader = ImageReader.newInstance(
+                zslSize.getWidth(), zslSize.getHeight(),
+                ImageFormat.YUV_420_888, 3);
+            yuvReader.setOnImageAvailableListener(this::onZslImage, cameraHandler);
+            zsl      = new ZslRingBuffer(zslSize.getWidth(), zslSize.getHeight(), ZSL_SLOTS);
+            zslFrame = new byte[zsl.frameSize()];
+            burstFrames = new byte[BURST_FRAMES][zsl.frameSize()];   // burst and low light
+
+            // Video encoder surface, rendered by the same repeating request
+            if (videoOn) startVideo(setup);
+
+            backId = setup.backId;
+            if (setup.frontId != null && !snapshot) setUpFront(setup);
+            fillEncodePool();
+
+            openBack();
+
+        } catch (SecurityException e) {
+            Log.e(TAG, "Camera permission denied");
+            stopSelf();
+        } catch (Exception e) {
+            Log.e(TAG, "Camera open failed: " + e.getMessage());
+            stopSelf();
+        }
+    }
+
+    private void startVideo(CameraSetup setup) {
+        Size vs = setup.videoSize;
+        video = new VideoSegmentRecorder(evidenceDir, vs.getWidth(), vs.getHeight(),
+            setup.orientation);
+        try {
+            videoSurface = video.start();
+        } catch (Exception e) {
+            Log.e(TAG, "Video encoder failed, photos only: " + e.getMessage());
+            video.stop();
+            video    = null;
+            videoOn  = false;
+            photosOn = true;
+        }
+    }
+
+    /** Frames waiting for the encoder, sized for either camera. */
+    private void fillEncodePool() {
+        int frameBytes = zsl.frameSize();
+        if (front != null) frameBytes = Math.max(frameBytes, front.frame().length);
+        // Buffers still out with the encoder are dropped when they come back
+        encodePool.clear();
+        for (int i = 0; i < ENCODE_POOL; i++) encodePool.offer(new byte[frameBytes]);
+    }
+
+    /**
+     * SOS during a snapshot: add what the snapshot left out — the evidence
+     * mode's video and the front camera. A session that is already running
+     * is rebuilt so the video surface joins the repeating request. Camera thread.
+     */
+    private void upgradeFromSnapshot() {
+        if (yuvReader == null) return;   // camera never opened; the service is stopping
+        CameraSetup setup = CameraSetup.get(this);
+        if (setup == null) return;
+        readEvidenceMode();
+        if (videoOn && video == null) startVideo(setup);
+        if (setup.frontId != null && front == null) setUpFront(setup);
+        fillEncodePool();
+        if (!configuredOnce) return;   // onConfigured will start video and front as usual
+
+        if (video != null) mainHandler.postDelayed(CameraEvidenceService.this::stopSelf, MAX_VIDEO_MS);
+        if (front != null && concurrent) {
+            front.open(null, null);
+            mainHandler.postDelayed(frontCapture, CAPTURE_INTERVAL_MS / 2);
+        }
+        if (video != null && cameraDevice != null && !frontSlotActive) {
+            // Captures wait on captureSession == null; onConfigured resumes them
+            try { if (captureSession != null) { captureSession.close(); captureSession = null; } }
+            catch (Exception ignored) {}
+            zslBuilder = null;
+            createCaptureSession();
+        }
+    }
+
+    /** Open (or reopen) the back camera; readers and rings are already allocated. */
+    private void openBack() {
+        try {
             // Open camera (requires permission — already declared in manifest)
-            cameraManager.openCamera(cameraId, new CameraDevice.StateCallback() {
+            cameraManager.openCamera(backId, new CameraDevice.StateCallback() {
                 @Override
                 public void onOpened(CameraDevice camera) {
                     cameraDevice = camera;
+                    if (openedAt == 0) openedAt = SystemClock.elapsedRealtime();
                     createCaptureSession();
                 }
                 @Override public void onDisconnected(CameraDevice camera) { camera.close(); }
@@ -153,34 +478,121 @@ public class CameraEvidenceService extends Service {
                     stopSelf();
                 }
             }, cameraHandler);
-
         } catch (SecurityException e) {
             Log.e(TAG, "Camera permission denied");
             stopSelf();
         } catch (Exception e) {
+            // The cached id may be stale; probe again next time
             Log.e(TAG, "Camera open failed: " + e.getMessage());
+            CameraSetup.invalidate(this);
             stopSelf();
         }
     }
 
+    // ── FRONT CAMERA ──────────────────────────────────────────
+
+    private void setUpFront(CameraSetup setup) {
+        try {
+            concurrent = setup.concurrent;
+            if (!concurrent && videoOn) {
+                Log.d(TAG, "Front camera skipped: video needs the back camera continuously");
+                return;
+            }
+            front = new CompanionCamera(cameraManager, setup.frontId, setup.frontYuvSize,
+                cameraHandler, "front");
+            Log.d(TAG, "Front camera " + setup.frontId
+                + (concurrent ? " concurrent" : " alternating"));
+        } catch (Exception e) {
+            Log.e(TAG, "Front camera setup failed: " + e.getMessage());
+            front = null;
+        }
+    }
+
+    /** Concurrent mode: front photo, half an interval out of phase with the back. */
+    private final Runnable frontCapture = new Runnable() {
+        @Override public void run() {
+            if (!capturing || front == null || budgetSpent()) return;
+            long at = SystemClock.elapsedRealtime();
+            cameraHandler.post(() -> saveFrontPhoto(at));
+            mainHandler.postDelayed(this, CAPTURE_INTERVAL_MS);
+        }
+    };
+
+    /** Alternating mode: hand the sensor to the front camera for one photo. Camera thread. */
+    private void runFrontSlot() {
+        frontSlotActive = true;
+        long at = SystemClock.elapsedRealtime();
+        try { if (captureSession != null) { captureSession.close(); captureSession = null; } }
+        catch (Exception ignored) {}
+        try { if (cameraDevice  != null) { cameraDevice.close();  cameraDevice  = null; } }
+        catch (Exception ignored) {}
+        zslBuilder = null;
+        front.open(() -> cameraHandler.postDelayed(() -> {
+            saveFrontPhoto(at);
+            endFrontSlot();
+        }, FRONT_SETTLE_MS), this::endFrontSlot);
+        cameraHandler.postDelayed(endFrontSlotRunnable, FRONT_SLOT_TIMEOUT_MS);
+    }
+
+    private final Runnable endFrontSlotRunnable = this::endFrontSlot;
+
+    private void endFrontSlot() {
+        if (!frontSlotActive) return;
+        frontSlotActive = false;
+        cameraHandler.removeCallbacks(endFrontSlotRunnable);
+        front.close();
+        Log.d(TAG, "Front slot done, first frame after " + front.getLastOpenMs() + "ms — "
+            + backCadence + "; " + front.cadence);
+        if (!capturing) return;
+        zsl.clear();
+        openBack();
+    }
+
+    private void saveFrontPhoto(long atMs) {
+        if (front == null || budgetSpent()) return;
+        long frameAt = front.grab(atMs);
+        if (frameAt < 0) return;
+        saveNv21(front.frame(), front.getWidth(), front.getHeight(), frameAt,
+            "f" + nextLabel(), "front", front.cadence);
+    }
+
     // ── CAPTURE SESSION ───────────────────────────────────────
 
     private void createCaptureSession() {
         try {
-            // Dummy SurfaceTexture — camera needs at least one output surface
-            // but we don't want to show any preview to the user
-            SurfaceTexture dummyTexture = new SurfaceTexture(10);
-            dummyTexture.setDefaultBufferSize(320, 240);
-            Surface dummySurface = new Surface(dummyTexture);
-
+            // The YUV ring reader doubles as the always-on output, so no
+            // preview surface is needed
+            List<Surface> outputs = new ArrayList<>(Arrays.asList(
+                imageReader.getSurface(), yuvReader.getSurface()));
+            if (videoSurface != null) outputs.add(videoSurface);
             cameraDevice.createCaptureSession(
-                Arrays.asList(imageReader.getSurface(), dummySurface),
+                outputs,
                 new CameraCaptureSession.StateCallback() {
                     @Override
                     public void onConfigured(CameraCaptureSession session) {
                         captureSession = session;
                         capturing = true;
-                        scheduleNextCapture(0); // start immediately
+                        startZslStream();
+                        if (configuredOnce) {
+                            // Back from a front slot or an upgrade: give AE/AF a moment, then resume
+                            if (photosOn) scheduleNextCapture(FRONT_SETTLE_MS);
+                            return;
+                        }
+                        configuredOnce = true;
+                        configuredAt = SystemClock.elapsedRealtime();
+                        if (video != null) mainHandler.postDelayed(
+                            CameraEvidenceService.this::stopSelf, MAX_VIDEO_MS);
+                        if (front != null && concurrent) {
+                            front.open(null, null);
+                            mainHandler.postDelayed(frontCapture, CAPTURE_INTERVAL_MS / 2);
+                        }
+                        if (snapshot) {
+                            // First photo from the ring's first frame, not a still
+                            firstFromRing = true;
+                            cameraHandler.postDelayed(firstFrameTimeout, FIRST_FRAME_TIMEOUT_MS);
+                        } else if (photosOn) {
+                            scheduleNextCapture(0); // start immediately
+                        }
                     }
                     @Override public void onConfigureFailed(CameraCaptureSession session) {
                         Log.e(TAG, "Capture session configure failed");
@@ -194,17 +606,407 @@ public class CameraEvidenceService extends Service {
         }
     }
 
+    // ── ZERO SHUTTER LAG ──────────────────────────────────────
+
+    private void startZslStream() {
+        try {
+            CaptureRequest.Builder b = cameraDevice.createCaptureRequest(
+                CameraDevice.TEMPLATE_PREVIEW);
+            b.addTarget(yuvReader.getSurface());
+            if (videoSurface != null) b.addTarget(videoSurface);
+            b.set(CaptureRequest.CONTROL_AF_MODE,
+                CaptureRequest.CONTROL_AF_MODE_CONTINUOUS_PICTURE);
+            b.set(CaptureRequest.CONTROL_AE_MODE, CaptureRequest.CONTROL_AE_MODE_ON);
+            captureSession.setRepeatingRequest(b.build(), zslResults, cameraHandler);
+            zslBuilder = b;
+        } catch (Exception e) {
+            // Still captures keep working without the ring
+            Log.e(TAG, "ZSL stream failed: " + e.getMessage());
+        }
+    }
+
+    private final CameraCaptureSession.CaptureCallback zslResults =
+        new CameraCaptureSession.CaptureCallback() {
+            @Override
+            public void onCaptureCompleted(CameraCaptureSession session,
+                CaptureRequest request, TotalCaptureResult result) {
+                if (isConverged(result)) {
+                    Long ts = result.get(CaptureResult.SENSOR_TIMESTAMP);
+                    if (ts != null) zsl.markConverged(ts);
+                }
+            }
+        };
+
+    static boolean isConverged(CaptureResult r) {
+        Integer ae = r.get(CaptureResult.CONTROL_AE_STATE);
+        Integer af = r.get(CaptureResult.CONTROL_AF_STATE);
+        boolean aeOk = ae == null
+            || ae == CaptureResult.CONTROL_AE_STATE_CONVERGED
+            || ae == CaptureResult.CONTROL_AE_STATE_LOCKED
+            || ae == CaptureResult.CONTROL_AE_STATE_FLASH_REQUIRED;
+        boolean afOk = af == null
+            || af == CaptureResult.CONTROL_AF_STATE_INACTIVE
+            || af == CaptureResult.CONTROL_AF_STATE_PASSIVE_FOCUSED
+            || af == CaptureResult.CONTROL_AF_STATE_FOCUSED_LOCKED;
+        return aeOk && afOk;
+    }
+
+    /** Repeating-stream frame: keep one every ZSL_COPY_INTERVAL_MS. Camera thread. */
+    private void onZslImage(ImageReader reader) {
+        try (Image image = reader.acquireLatestImage()) {
+            if (image == null) return;
+            long now = SystemClock.elapsedRealtime();
+            if (!burstActive && now - lastZslCopyAt < ZSL_COPY_INTERVAL_MS) return;
+            lastZslCopyAt = now;
+            Image.Plane[] p = image.getPlanes();
+            zsl.offer(p[0].getBuffer(), p[0].getRowStride(), p[0].getPixelStride(),
+                p[1].getBuffer(), p[2].getBuffer(), p[1].getRowStride(), p[1].getPixelStride(),
+                image.getTimestamp(), now);
+            if (firstFromRing) {
+                firstFromRing = false;
+                cameraHandler.removeCallbacks(firstFrameTimeout);
+                scheduleNextCapture(takeRingPhoto(now) ? nextDelay() : 0);
+            }
+            if (!burstActive && !captureInFlight && photosOn && !snapshot
+                    && now - lastSceneCheckAt >= SCENE_CHECK_MS) {
+                lastSceneCheckAt = now;
+                long hash = SceneChangePacer.dHash(p[0].getBuffer(), zsl.getWidth(),
+                    zsl.getHeight(), p[0].getRowStride(), p[0].getPixelStride());
+                if (pacer.onLiveFrame(hash, now, photoCount, maxPhotos)) {
+                    // Scene changed a lot since the last photo: capture now
+                    mainHandler.removeCallbacks(captureRunnable);
+                    mainHandler.post(captureRunnable);
+                }
+            }
+        } catch (Exception e) {
+            Log.e(TAG, "ZSL copy failed: " + e.getMessage());
+        }
+    }
+
+    /** No ring frame in time: take the first snapshot photo as a still instead. */
+    private final Runnable firstFrameTimeout = () -> {
+        if (!firstFromRing) return;
+        firstFromRing = false;
+        Log.w(TAG, "No ring frame after " + FIRST_FRAME_TIMEOUT_MS + "ms, still capture");
+        scheduleNextCapture(0);
+    };
+
+    /**
+     * Save the ring frame nearest {@code atMs} as a photo. Camera thread.
+     *
+     * @return false when the ring is still empty
+     */
+    private boolean takeRingPhoto(long atMs) {
+        if (zsl == null || budgetSpent()) return false;
+        long frameAt = zsl.copyBest(atMs, zslFrame);
+        if (frameAt < 0) return false;
+        // Encoder busy counts as taken: a still capture would only add to the backlog
+        saveNv21(zslFrame, zsl.getWidth(), zsl.getHeight(), frameAt, nextLabel(),
+            (frameAt - atMs) + "ms from request", backCadence);
+        return true;
+    }
+
+    private String nextLabel() { return String.valueOf(photoSeq.incrementAndGet()); }
+
+    /**
+     * Queue one NV21 frame for encoding as CAM_<ts>_<label>.jpg. The frame is
+     * copied, so the caller's buffer is free on return; JPEG encoding runs
+     * on encodeExecutor at the ladder's current quality and scale, with
+     * EXIF time and location spliced in as it is written.
+     *
+     * @param frameAtMs elapsedRealtime at which the frame arrived
+     * @return false if the encoder is still busy with earlier frames
+     */
+    private boolean saveNv21(byte[] nv21, int w, int h, long frameAtMs, String label,
+                             String note, CompanionCamera.Cadence cadence) {
+        long wallMs = System.currentTimeMillis() - (SystemClock.elapsedRealtime() - frameAtMs);
+        byte[] copy = encodePool.poll();
+        if (copy == null || copy.length < YuvConverter.nv21Size(w, h)) {
+            Log.w(TAG, "Encoder busy, frame " + label + " skipped");
+            if (copy != null) encodePool.offer(copy);
+            return false;
+        }
+        System.arraycopy(nv21, 0, copy, 0, YuvConverter.nv21Size(w, h));
+        encodeExecutor.execute(() -> {
+            try {
+                encodeAndSubmit(copy, w, h, wallMs, label, note, cadence);
+            } finally {
+                encodePool.offer(copy);
+            }
+        });
+        return true;
+    }
+
+    /** Encode thread. */
+    private void encodeAndSubmit(byte[] nv21, int w, int h, long wallMs, String label,
+                                 String note, CompanionCamera.Cadence cadence) {
+        boolean face = detectFace(nv21, w, h);
+        // At the cap only a face earns a place, and only by displacing a faceless photo
+        if (photoCount >= maxPhotos && !(face && evictFaceless())) return;
+        EvidenceQualityLadder.Rung rung = ladder.check(SystemClock.elapsedRealtime());
+        if (face) {
+            rung = EvidenceQualityLadder.RUNGS[Math.max(0, rung.level - FACE_RUNG_BOOST)];
+            note += ", face " + faceDetector.getFaceSize() + "px";
+        }
+        EvidenceWriter.Buffer thumb = writer.obtain();
+        try {
+            EvidenceThumbs.encodeNv21(nv21, w, h, thumb);
+        } catch (Exception e) {
+            writer.recycle(thumb);
+            thumb = null;   // the gallery will backfill it
+        }
+        byte[] src = nv21;
+        if (rung.half) {
+            int size = YuvConverter.nv21Size(w / 2, h / 2);
+            if (halfFrame == null || halfFrame.length < size) halfFrame = new byte[size];
+            YuvConverter.halveNv21(nv21, w, h, halfFrame);
+            src = halfFrame;
+            w /= 2;
+            h /= 2;
+        }
+        byte[] exif = ExifWriter.buildApp1(wallMs, TimeZone.getDefault(),
+            SafeHerService.getLastFix());
+        EvidenceWriter.Buffer out = writer.obtain();
+        long t0 = SystemClock.elapsedRealtime();
+        try {
+            new YuvImage(src, ImageFormat.NV21, w, h, null)
+                .compressToJpeg(new Rect(0, 0, w, h), rung.jpegQuality,
+                    ExifWriter.splice(out, exif));
+        } catch (Exception e) {
+            out.thumb = thumb;
+            writer.recycle(out);
+            Log.e(TAG, "Encode failed: " + e.getMessage());
+            return;
+        }
+        Log.d(TAG, "Photo queued (" + note + ", " + rung.name + " " + w + "x" + h
+            + ", encoded in " + (SystemClock.elapsedRealtime() - t0) + "ms)");
+        boolean first = photoCount == 0;
+        if (!writer.submit(out, "CAM_", label, ".jpg", thumb, wallMs)) return;
+        addIncidentFile(wallMs, label);
+        onPhotoTaken(cadence);
+        if (face) {
+            faceCount++;
+        } else if (!first) {
+            faceless.add(label);
+            facelessCount = faceless.size();
+        }
+    }
+
+    // ── FACES ─────────────────────────────────────────────────
+
+    /** Face check for one frame; coarsens the search if it runs over budget. Encode thread. */
+    private boolean detectFace(byte[] nv21, int w, int h) {
+        long t0 = SystemClock.elapsedRealtime();
+        boolean face = faceDetector.detect(nv21, w, h);
+        long took = SystemClock.elapsedRealtime() - t0;
+        if (took > FACE_BUDGET_MS && faceDetector.coarser()) {
+            Log.w(TAG, "Face check took " + took + "ms, stride → " + faceDetector.getStride());
+        }
+        return face;
+    }
+
+    /**
+     * Delete the oldest faceless photo of this incident to make room for one
+     * with a face. Encode thread.
+     *
+     * @return false if there is none left
+     */
+    private boolean evictFaceless() {
+        String label;
+        while ((label = faceless.poll()) != null) {
+            facelessCount = faceless.size();
+            String tail = "_" + label + ".jpg", name = null;
+            synchronized (incidentFiles) {
+                for (String n : incidentFiles) if (n.endsWith(tail)) { name = n; break; }
+                if (name != null) incidentFiles.remove(name);
+            }
+            if (name == null) continue;
+            File photo = new File(evidenceDir, name);
+            // Not yet forced under the periodic fsync policy: still a .part
+            boolean gone = photo.delete()
+                | new File(evidenceDir, name + EvidenceWriter.PART).delete();
+            EvidenceThumbs.delete(photo);
+            if (!gone) continue;   // already deleted by the user
+            synchronized (this) { photoCount--; }
+            Log.d(TAG, "Replaced faceless " + name + " with a face");
+            return true;
+        }
+        return false;
+    }
+
+    /** True once maxPhotos are kept and no faceless photo is left to replace. */
+    private boolean budgetSpent() {
+        return photoCount >= maxPhotos
+            && (facelessCount == 0 || photoSeq.get() >= maxPhotos * CANDIDATE_FACTOR);
+    }
+
+    /** Delay to the next photo: fixed in a snapshot, scene-paced otherwise. */
+    private long nextDelay() {
+        return snapshot ? SNAPSHOT_INTERVAL_MS : pacer.getIntervalMs();
+    }
+
+    // ── BURST + SHARPNESS ─────────────────────────────────────
+
+    /** Fire BURST_FRAMES back-to-back requests into the ring. Camera thread. */
+    private boolean startBurst() {
+        if (zslBuilder == null || burstFrames == null) return false;
+        try {
+            List<CaptureRequest> burst = new ArrayList<>(BURST_FRAMES);
+            CaptureRequest req = zslBuilder.build();
+            for (int i = 0; i < BURST_FRAMES; i++) burst.add(req);
+            burstActive = true;
+            captureSession.captureBurst(burst, new CameraCaptureSession.CaptureCallback() {
+                @Override
+                public void onCaptureCompleted(CameraCaptureSession session,
+                    CaptureRequest request, TotalCaptureResult result) {
+                    zslResults.onCaptureCompleted(session, request, result);
+                }
+                @Override
+                public void onCaptureSequenceCompleted(CameraCaptureSession session,
+                    int sequenceId, long frameNumber) {
+                    cameraHandler.postDelayed(CameraEvidenceService.this::scoreBurst,
+                        BURST_SETTLE_MS);
+                }
+                @Override
+                public void onCaptureSequenceAborted(CameraCaptureSession session,
+                    int sequenceId) {
+                    cameraHandler.post(CameraEvidenceService.this::scoreBurst);
+                }
+            }, cameraHandler);
+            return true;
+        } catch (Exception e) {
+            burstActive = false;
+            Log.e(TAG, "Burst failed: " + e.getMessage());
+            return false;
+        }
+    }
+
+    /** Copy the burst out of the ring and score it off the camera thread. */
+    private void scoreBurst() {
+        burstActive = false;
+        int n = zsl.copyRecent(burstFrames, burstArrived);
+        if (n == 0) {
+            captureStill();
+            return;
+        }
+        if (lowLight && n >= MIN_STACK_FRAMES) scoreExecutor.execute(() -> stackBurst(n));
+        else scoreExecutor.execute(() -> pickSharpest(n));
+    }
+
+    /**
+     * Low light: align and average the burst into one denoised frame.
+     * Uses fewer frames next time if this ran over its budget. Score thread.
+     */
+    private void stackBurst(int n) {
+        int w = zsl.getWidth(), h = zsl.getHeight();
+        if (stacker == null) {
+            stacker    = new LowLightStacker(w, h, BURST_FRAMES);
+            stackFrame = new byte[zsl.frameSize()];
+        }
+        int use = Math.min(n, stackFrames);
+        long t0 = SystemClock.elapsedRealtime();
+        stacker.stack(burstFrames, use, stackFrame);
+        long took = SystemClock.elapsedRealtime() - t0;
+        if (took > STACK_BUDGET_MS && stackFrames > MIN_STACK_FRAMES) {
+            stackFrames--;
+            Log.w(TAG, "Stacking took " + took + "ms, frames → " + stackFrames);
+        }
+        if (capturing) {
+            saveNv21(stackFrame, w, h, burstArrived[0], nextLabel(),
+                String.format(Locale.US, "low light, %d frames stacked in %dms",
+                    use, took), backCadence);
+        }
+        scheduleNextCapture(nextDelay());
+    }
+
+    /** Score thread: keep only the sharpest burst frame. */
+    private void pickSharpest(int n) {
+        int w = zsl.getWidth(), h = zsl.getHeight();
+        long t0 = SystemClock.elapsedRealtime();
+        int best = 0;
+        double bestScore = -1;
+        for (int i = 0; i < n; i++) {
+            double s = SharpnessScorer.score(burstFrames[i], w, h, w, scoreDecimate);
+            if (s > bestScore) { bestScore = s; best = i; }
+        }
+        long took = SystemClock.elapsedRealtime() - t0;
+        if (took > SCORE_BUDGET_MS && scoreDecimate < MAX_SCORE_DECIMATE) {
+            scoreDecimate *= 2;
+            Log.w(TAG, "Scoring took " + took + "ms, decimate → " + scoreDecimate);
+        }
+        if (capturing) {
+            saveNv21(burstFrames[best], w, h, burstArrived[best], nextLabel(),
+                String.format(Locale.US, "sharpest %d/%d, score %.0f, scored in %dms",
+                    best + 1, n, bestScore, took), backCadence);
+        }
+        scheduleNextCapture(nextDelay());
+    }
+
     // ── PHOTO CAPTURE ─────────────────────────────────────────
 
     private void scheduleNextCapture(long delayMs) {
-        if (!capturing || photoCount >= MAX_PHOTOS) {
+        captureInFlight = false;
+        if (!capturing) {
             stopSelf();
             return;
         }
-        mainHandler.postDelayed(this::capturePhoto, delayMs);
+        if (budgetSpent()) {
+            // Video keeps going until MAX_VIDEO_MS
+            if (video == null) stopSelf();
+            return;
+        }
+        // At most one capture pending, even after an aborted burst plus a reconfigure
+        mainHandler.removeCallbacks(captureRunnable);
+        mainHandler.postDelayed(captureRunnable, delayMs);
     }
 
+    // One instance, so a scene change can pull a scheduled capture forward
+    private final Runnable captureRunnable = this::capturePhoto;
+
     private void capturePhoto() {
+        if (!capturing || captureSession == null || cameraDevice == null) return;
+        if (captureInFlight) return;   // a pull raced the slot already running
+        captureInFlight = true;
+        if (front != null && !concurrent && ++slot % ALTERNATE_EVERY == 0) {
+            cameraHandler.post(this::runFrontSlot);
+            return;
+        }
+        long at = SystemClock.elapsedRealtime();
+        cameraHandler.post(() -> {
+            if (zsl.size() > 0 && isDuplicateScene(at)) {
+                scheduleNextCapture(nextDelay());
+                return;
+            }
+            if (zsl.size() > 0 && (burstMode || lowLight) && startBurst()) return;
+            if (takeRingPhoto(at)) scheduleNextCapture(nextDelay());
+            else captureStill();
+        });
+    }
+
+    /**
+     * Hash the frame for this slot; true if it repeats the last kept photo.
+     * Also updates the low-light flag from its mean luma. Camera thread.
+     */
+    private boolean isDuplicateScene(long atMs) {
+        if (zsl.copyBest(atMs, zslFrame) < 0) return false;
+        boolean dark = LowLightStacker.meanLuma(zslFrame, zsl.getWidth(), zsl.getHeight(), 8)
+            < LowLightStacker.LOW_LIGHT_LUMA;
+        if (dark != lowLight) {
+            lowLight = dark;
+            Log.d(TAG, dark ? "Low light: stacking bursts" : "Light back: single frames");
+        }
+        if (snapshot) return false;   // a snapshot keeps every slot
+        long hash = SceneChangePacer.dHash(zslFrame, zsl.getWidth(), zsl.getHeight());
+        if (pacer.shouldKeep(hash, SystemClock.elapsedRealtime(), photoCount, maxPhotos)) {
+            return false;
+        }
+        Log.d(TAG, "Duplicate scene (distance " + pacer.getLastDistance() + "), skipped — "
+            + pacer);
+        return true;
+    }
+
+    /** One-off still capture; only used before the ring has a frame. */
+    private void captureStill() {
         if (!capturing || captureSession == null || cameraDevice == null) return;
         try {
             captureBuilder = cameraDevice.createCaptureRequest(
@@ -212,73 +1014,141 @@ public class CameraEvidenceService extends Service {
             captureBuilder.addTarget(imageReader.getSurface());
             captureBuilder.set(CaptureRequest.CONTROL_AF_MODE,
                 CaptureRequest.CONTROL_AF_MODE_CONTINUOUS_PICTURE);
-            captureBuilder.set(CaptureRequest.JPEG_QUALITY, (byte) 80);
+            captureBuilder.set(CaptureRequest.JPEG_QUALITY,
+                (byte) ladder.getRung().jpegQuality);
+            // No JPEG_GPS_LOCATION: saveImage() replaces the camera's EXIF with ExifWriter's
 
             captureSession.capture(captureBuilder.build(),
                 new CameraCaptureSession.CaptureCallback() {
                     @Override
                     public void onCaptureCompleted(CameraCaptureSession session,
                         CaptureRequest request, TotalCaptureResult result) {
-                        photoCount++;
-                        Log.d(TAG, "Photo #" + photoCount + " captured");
-
-                        // Broadcast so SosActivity can show live count
-                        Intent broadcast = new Intent(ACTION_PHOTO_TAKEN);
-                        broadcast.putExtra(EXTRA_PHOTO_COUNT, photoCount);
-                        sendBroadcast(broadcast);
-
-                        // Update foreground notification with live count
-                        Notification updated = new Notification.Builder(
-                                CameraEvidenceService.this, "evidence_channel")
-                                .setContentTitle("SaveSouls — Evidence Recording")
-                                .setContentText("📷 " + photoCount + " photo(s) captured")
-                                .setSmallIcon(android.R.drawable.ic_menu_camera)
-                                .setOngoing(true)
-                                .build();
-                        getSystemService(NotificationManager.class).notify(1003, updated);
-
-                        scheduleNextCapture(CAPTURE_INTERVAL_MS);
+                        onPhotoTaken(backCadence);
+                        scheduleNextCapture(nextDelay());
                     }
                 }, cameraHandler);
         } catch (Exception e) {
             Log.e(TAG, "Capture failed: " + e.getMessage());
-            scheduleNextCapture(CAPTURE_INTERVAL_MS);
+            scheduleNextCapture(nextDelay());
         }
     }
 
+    // Camera thread (stills) or encode thread (ring, burst, front)
+    private synchronized void onPhotoTaken(CompanionCamera.Cadence cadence) {
+        photoCount++;
+        cadence.onPhoto(SystemClock.elapsedRealtime());
+        Log.d(TAG, "Photo #" + photoCount + " captured — " + cadence);
+        if (photoCount == 1) recordTimeToFirstPhoto();
+
+        // Broadcast so SosActivity can show live count
+        Intent broadcast = new Intent(ACTION_PHOTO_TAKEN);
+        broadcast.putExtra(EXTRA_PHOTO_COUNT, photoCount);
+        sendBroadcast(broadcast);
+
+        // Update foreground notification with live count
+        Notification updated = new Notification.Builder(
+                CameraEvidenceService.this, "evidence_channel")
+                .setContentTitle("SaveSouls — Evidence Recording")
+                .setContentText("📷 " + photoCount + " photo(s) captured"
+                    + (front != null ? " · back " + backCadence.getPhotos()
+                        + " · front " + front.cadence.getPhotos() : ""))
+                .setSmallIcon(android.R.drawable.ic_menu_camera)
+                .setOngoing(true)
+                .build();
+        getSystemService(NotificationManager.class).notify(1003, updated);
+    }
+
     // ── SAVE JPEG ─────────────────────────────────────────────
 
     private void saveImage(ImageReader reader) {
         try (Image image = reader.acquireLatestImage()) {
             if (image == null) return;
-            ByteBuffer buffer = image.getPlanes()[0].getBuffer();
-            byte[] bytes = new byte[buffer.remaining()];
-            buffer.get(bytes);
-
-            String ts = new SimpleDateFormat("yyyyMMdd_HHmmss", Locale.US).format(new Date());
-            File file = new File(evidenceDir, "CAM_" + ts + "_" + photoCount + ".jpg");
-
-            try (FileOutputStream fos = new FileOutputStream(file)) {
-                fos.write(bytes);
-                Log.d(TAG, "Photo saved: " + file.getName());
+            // Copy with the EXIF spliced in; naming and file I/O happen on the writer thread
+            long wallMs = System.currentTimeMillis();
+            byte[] exif = ExifWriter.buildApp1(wallMs, TimeZone.getDefault(),
+                SafeHerService.getLastFix());
+            EvidenceWriter.Buffer out = writer.obtain();
+            try {
+                ExifWriter.splice(image.getPlanes()[0].getBuffer(), exif, out);
+            } catch (Exception e) {
+                writer.recycle(out);
+                throw e;
+            }
+            String label = nextLabel();
+            // The first SOS photo is a still: keep the thumbnail's decode off this thread
+            try {
+                encodeExecutor.execute(() -> submitStill(out, label, wallMs));
+            } catch (RejectedExecutionException e) {
+                // Shutting down: the gallery will backfill the thumbnail
+                if (writer.submit(out, "CAM_", label, ".jpg", null, wallMs)) {
+                    addIncidentFile(wallMs, label);
+                }
             }
         } catch (Exception e) {
             Log.e(TAG, "Save failed: " + e.getMessage());
         }
     }
 
+    /** Thumbnail a still's JPEG, then queue both. encodeExecutor. */
+    private void submitStill(EvidenceWriter.Buffer out, String label, long wallMs) {
+        EvidenceWriter.Buffer thumb = writer.obtain();
+        try {
+            EvidenceThumbs.encodeJpeg(out.data, out.length, thumb);
+        } catch (Exception e) {
+            writer.recycle(thumb);
+            thumb = null;   // the gallery will backfill it
+        }
+        if (writer.submit(out, "CAM_", label, ".jpg", thumb, wallMs)) addIncidentFile(wallMs, label);
+    }
+
     // ── HELPERS ───────────────────────────────────────────────
 
-    private Size chooseCaptureSize(StreamConfigurationMap map) {
-        Size[] sizes = map.getOutputSizes(ImageFormat.JPEG);
-        // Pick 1280x720 or the closest smaller size for speed
-        Size best = sizes[sizes.length - 1]; // smallest
-        for (Size s : sizes) {
-            if (s.getWidth() <= 1280 && s.getHeight() <= 720) {
-                if (s.getWidth() > best.getWidth()) best = s;
-            }
+    private void addIncidentFile(long wallMs, String label) {
+        String name = EvidenceWriter.fileName("CAM_", wallMs, label, ".jpg");
+        synchronized (incidentFiles) { incidentFiles.add(name); }
+    }
+
+    // ── TIME TO FIRST PHOTO ───────────────────────────────────
+
+    /** Intent that starts evidence capture and stamps the trigger time. */
+    public static Intent startIntent(Context ctx) {
+        return new Intent(ctx, CameraEvidenceService.class)
+            .putExtra(EXTRA_TRIGGER_AT, SystemClock.elapsedRealtime());
+    }
+
+    /** Intent for a silent snapshot: SNAPSHOT_PHOTOS photos, then stop. */
+    public static Intent snapshotIntent(Context ctx) {
+        return startIntent(ctx).putExtra(EXTRA_SNAPSHOT, true);
+    }
+
+    /** Log the trigger-to-first-photo breakdown and append it to PREF_TTFP_LOG. */
+    private void recordTimeToFirstPhoto() {
+        long now   = SystemClock.elapsedRealtime();
+        long start = triggerAt > 0 ? triggerAt : createdAt;
+        long ttfp  = now - start;
+        String kind = snapshot ? "snapshot" : "sos";
+        Log.d(TAG, "Time to first photo " + ttfp + "ms, " + kind + " (service +" + (createdAt - start)
+            + ", setup " + setupMs + "ms " + (setupWarm ? "warm" : "cold")
+            + ", opened +" + (openedAt > 0 ? openedAt - start : -1)
+            + ", configured +" + (configuredAt > 0 ? configuredAt - start : -1)
+            + ", photo +" + ttfp + ")" + (triggerAt > 0 ? "" : " [no trigger time]"));
+        if (snapshot && triggerAt > 0 && ttfp > SNAPSHOT_TTFP_TARGET_MS) {
+            Log.w(TAG, "Snapshot first photo over target: " + ttfp + "ms > "
+                + SNAPSHOT_TTFP_TARGET_MS + "ms");
+        }
+
+        // "yyyyMMdd_HHmmss,model,ms,warm|cold,sos|snapshot" entries, newest last
+        SharedPreferences prefs = getSharedPreferences("SaveSouls", MODE_PRIVATE);
+        String entry = new SimpleDateFormat("yyyyMMdd_HHmmss", Locale.US).format(new Date())
+            + "," + Build.MODEL.replace(',', ' ').replace(';', ' ') + "," + ttfp
+            + "," + (setupWarm ? "warm" : "cold") + "," + kind;
+        String log = prefs.getString(PREF_TTFP_LOG, "");
+        String[] old = log.isEmpty() ? new String[0] : log.split(";");
+        StringBuilder sb = new StringBuilder();
+        for (int i = Math.max(0, old.length - (TTFP_HISTORY - 1)); i < old.length; i++) {
+            sb.append(old[i]).append(';');
         }
-        return best;
+        prefs.edit().putString(PREF_TTFP_LOG, sb.append(entry).toString()).apply();
     }
 
     private void createNotificationChannel() {
@@ -293,7 +1163,16 @@ public class CameraEvidenceService extends Service {
         catch (Exception ignored) {}
         try { if (cameraDevice  != null) { cameraDevice.close();  cameraDevice  = null; } }
         catch (Exception ignored) {}
+        if (video != null) {
+            video.stop();
+            Log.d(TAG, "Video stopped after " + video.getSegmentCount() + " segment(s)");
+            video = null;
+            videoSurface = null;
+        }
+        if (front != null) front.release();
         try { if (imageReader   != null) { imageReader.close();   imageReader   = null; } }
         catch (Exception ignored) {}
+        try { if (yuvReader     != null) { yuvReader.close();     yuvReader     = null; } }
+        catch (Exception ignored) {}
     }
 }
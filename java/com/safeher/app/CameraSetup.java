@@ -0,0 +1,200 @@
+package com.safeher.app;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.graphics.ImageFormat;
+import android.hardware.camera2.CameraCharacteristics;
+import android.hardware.camera2.CameraManager;
+import android.hardware.camera2.params.StreamConfigurationMap;
+import android.media.MediaCodec;
+import android.os.Build;
+import android.os.SystemClock;
+import android.util.Log;
+import android.util.Size;
+
+import java.util.Set;
+
+/**
+ * CameraSetup
+ *
+ * Everything CameraEvidenceService needs to know about the cameras before
+ * opening one: back/front ids, chosen JPEG/YUV/video sizes, sensor
+ * orientation and whether both cameras can stream concurrently.
+ *
+ * Probing this means walking getCameraIdList() and reading characteristics,
+ * which costs tens to hundreds of ms at the worst moment — right after an
+ * SOS trigger. So it is worked out once, kept in memory, and persisted in
+ * the "SaveSouls" preferences keyed by the build fingerprint (an OS update
+ * can change camera ids or sizes). prewarm() fills the cache in the
+ * background when protection starts; invalidate() drops it when an open
+ * with the cached values fails.
+ */
+public final class CameraSetup {
+
+    private static final String TAG = "CameraSetup";
+
+    private static final String PREF_CACHE = "evidence_camera_setup";
+
+    public final String  backId;
+    public final String  frontId;         // null when there is no front camera
+    public final Size    jpegSize;
+    public final Size    yuvSize;
+    public final Size    frontYuvSize;    // null with frontId
+    public final Size    videoSize;
+    public final int     orientation;
+    public final boolean concurrent;      // back + front can stream together
+
+    private static volatile CameraSetup cached = null;
+
+    private CameraSetup(String backId, String frontId, Size jpegSize, Size yuvSize,
+                        Size frontYuvSize, Size videoSize, int orientation,
+                        boolean concurrent) {
+        this.backId       = backId;
+        this.frontId      = frontId;
+        this.jpegSize     = jpegSize;
+        this.yuvSize      = yuvSize;
+        this.frontYuvSize = frontYuvSize;
+        this.videoSize    = videoSize;
+        this.orientation  = orientation;
+        this.concurrent   = concurrent;
+    }
+
+    /**
+     * Cached setup, probing the cameras only when nothing valid is stored.
+     *
+     * @return null if the device has no back camera or probing failed
+     */
+    public static CameraSetup get(Context ctx) {
+        CameraSetup s = cached;
+        if (s != null) return s;
+        SharedPreferences prefs = ctx.getSharedPreferences("SaveSouls", Context.MODE_PRIVATE);
+        s = decode(prefs.getString(PREF_CACHE, null));
+        if (s == null) {
+            long t0 = SystemClock.elapsedRealtime();
+            s = probe(ctx);
+            if (s == null) return null;
+            prefs.edit().putString(PREF_CACHE, encode(s)).apply();
+            Log.d(TAG, "Cameras probed in " + (SystemClock.elapsedRealtime() - t0) + "ms");
+        }
+        cached = s;
+        return s;
+    }
+
+    /** True if get() will not have to touch the camera service. */
+    public static boolean isWarm() { return cached != null; }
+
+    /** Fill the cache off the main thread, so a trigger finds it ready. */
+    public static void prewarm(Context ctx) {
+        if (cached != null) return;
+        Context app = ctx.getApplicationContext();
+        new Thread(() -> get(app), "CameraPrewarm").start();
+    }
+
+    /** Forget the cached setup (e.g. the cached camera id failed to open). */
+    public static void invalidate(Context ctx) {
+        cached = null;
+        ctx.getSharedPreferences("SaveSouls", Context.MODE_PRIVATE)
+            .edit().remove(PREF_CACHE).apply();
+    }
+
+    // ── Probe ─────────────────────────────────────────────────────────────────
+
+    private static CameraSetup probe(Context ctx) {
+        try {
+            CameraManager cm = (CameraManager) ctx.getSystemService(Context.CAMERA_SERVICE);
+            String backId = null, frontId = null;
+            for (String id : cm.getCameraIdList()) {
+                Integer facing = cm.getCameraCharacteristics(id)
+                    .get(CameraCharacteristics.LENS_FACING);
+                if (facing == null) continue;
+                if (facing == CameraCharacteristics.LENS_FACING_BACK && backId == null)
+                    backId = id;
+                else if (facing == CameraCharacteristics.LENS_FACING_FRONT && frontId == null)
+                    frontId = id;
+            }
+            if (backId == null) {
+                Log.e(TAG, "No back camera found");
+                return null;
+            }
+
+            CameraCharacteristics ch = cm.getCameraCharacteristics(backId);
+            StreamConfigurationMap map = ch.get(
+                CameraCharacteristics.SCALER_STREAM_CONFIGURATION_MAP);
+            Integer orientation = ch.get(CameraCharacteristics.SENSOR_ORIENTATION);
+
+            Size frontYuv = null;
+            boolean concurrent = false;
+            if (frontId != null) {
+                frontYuv = chooseCaptureSize(cm.getCameraCharacteristics(frontId)
+                    .get(CameraCharacteristics.SCALER_STREAM_CONFIGURATION_MAP),
+                    ImageFormat.YUV_420_888);
+                if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.R) {
+                    for (Set<String> combo : cm.getConcurrentCameraIds()) {
+                        if (combo.contains(backId) && combo.contains(frontId)) {
+                            concurrent = true;
+                            break;
+                        }
+                    }
+                }
+            }
+            return new CameraSetup(backId, frontId,
+                chooseCaptureSize(map, ImageFormat.JPEG),
+                chooseCaptureSize(map, ImageFormat.YUV_420_888),
+                frontYuv, chooseVideoSize(map),
+                orientation != null ? orientation : 0, concurrent);
+        } catch (Exception e) {
+            Log.e(TAG, "Camera probe failed: " + e.getMessage());
+            return null;
+        }
+    }
+
+    private static Size chooseCaptureSize(StreamConfigurationMap map, int format) {
+        Size[] sizes = map.getOutputSizes(format);
+        // Pick 1280x720 or the closest smaller size for speed
+        Size best = sizes[sizes.length - 1]; // smallest
+        for (Size s : sizes) {
+            if (s.getWidth() <= 1280 && s.getHeight() <= 720) {
+                if (s.getWidth() > best.getWidth()) best = s;
+            }
+        }
+        return best;
+    }
+
+    /** Largest encoder-compatible size up to 1280x720. */
+    private static Size chooseVideoSize(StreamConfigurationMap map) {
+        Size[] sizes = map.getOutputSizes(MediaCodec.class);
+        Size best = sizes[sizes.length - 1];
+        for (Size s : sizes) {
+            if (s.getWidth() <= 1280 && s.getHeight() <= 720
+                    && s.getWidth() * s.getHeight() > best.getWidth() * best.getHeight()) {
+                best = s;
+            }
+        }
+        return best;
+    }
+
+    // ── Persistence ───────────────────────────────────────────────────────────
+    // fingerprint|back|front|jpeg|yuv|frontYuv|video|orientation|concurrent
+
+    private static String encode(CameraSetup s) {
+        return Build.FINGERPRINT + "|" + s.backId + "|" + (s.frontId != null ? s.frontId : "")
+            + "|" + s.jpegSize + "|" + s.yuvSize + "|"
+            + (s.frontYuvSize != null ? s.frontYuvSize : "") + "|" + s.videoSize
+            + "|" + s.orientation + "|" + s.concurrent;
+    }
+
+    private static CameraSetup decode(String v) {
+        if (v == null) return null;
+        try {
+            String[] f = v.split("\\|", -1);
+            if (f.length != 9 || !Build.FINGERPRINT.equals(f[0])) return null;
+            boolean hasFront = !f[2].isEmpty();
+            return new CameraSetup(f[1], hasFront ? f[2] : null,
+                Size.parseSize(f[3]), Size.parseSize(f[4]),
+                hasFront ? Size.parseSize(f[5]) : null, Size.parseSize(f[6]),
+                Integer.parseInt(f[7]), Boolean.parseBoolean(f[8]));
+        } catch (Exception e) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,218 @@
+package com.safeher.app;
+
+import android.graphics.ImageFormat;
+import android.hardware.camera2.CameraAccessException;
+import android.hardware.camera2.CameraCaptureSession;
+import android.hardware.camera2.CameraDevice;
+import android.hardware.camera2.CameraManager;
+import android.hardware.camera2.CaptureRequest;
+import android.hardware.camera2.CaptureResult;
+import android.hardware.camera2.TotalCaptureResult;
+import android.media.Image;
+import android.media.ImageReader;
+import android.os.Handler;
+import android.os.SystemClock;
+import android.util.Log;
+import android.util.Size;
+
+import java.util.Collections;
+import java.util.Locale;
+
+/**
+ * CompanionCamera
+ *
+ * Lightweight second camera (the front one) for CameraEvidenceService: a
+ * YUV-only session whose repeating request fills its own ZslRingBuffer, so a
+ * photo is just a pick from the ring.
+ *
+ * The reader and ring are allocated once; only the device and session are
+ * opened and closed. That keeps the switch short when the phone cannot run
+ * both cameras at once and the service has to alternate between them.
+ * open() reports how long it took until the first frame landed.
+ *
+ * All callbacks run on the handler passed in (the service's camera thread).
+ */
+public class CompanionCamera {
+
+    private static final String TAG = "CompanionCamera";
+
+    private static final int  RING_SLOTS       = 3;
+    private static final long COPY_INTERVAL_MS = 100;
+
+    /** Photo cadence of one camera, for logs and the notification. */
+    public static final class Cadence {
+        private final String name;
+        private int  photos;
+        private long firstAt, lastAt;
+
+        public Cadence(String name) { this.name = name; }
+
+        public synchronized void onPhoto(long nowMs) {
+            if (photos == 0) firstAt = nowMs;
+            lastAt = nowMs;
+            photos++;
+        }
+
+        public synchronized int getPhotos() { return photos; }
+
+        /** Average seconds between photos, 0 until there are two. */
+        public synchronized float getAvgIntervalS() {
+            return photos > 1 ? (lastAt - firstAt) / 1000f / (photos - 1) : 0f;
+        }
+
+        @Override public synchronized String toString() {
+            return String.format(Locale.US, "%s %d photo(s), every %.1fs", name, photos,
+                getAvgIntervalS());
+        }
+    }
+
+    private final CameraManager manager;
+    private final String        cameraId;
+    private final Handler       handler;
+    private final ImageReader   reader;
+    private final ZslRingBuffer ring;
+    private final byte[]        frame;
+    public  final Cadence       cadence;
+
+    private CameraDevice         device;
+    private CameraCaptureSession session;
+    private Runnable             onFirstFrame;
+    private long                 openCalledAt;
+    private long                 lastCopyAt;
+    private volatile long        lastOpenMs = -1;
+
+    public CompanionCamera(CameraManager manager, String cameraId, Size size,
+                           Handler handler, String name) {
+        this.manager  = manager;
+        this.cameraId = cameraId;
+        this.handler  = handler;
+        this.cadence  = new Cadence(name);
+        reader = ImageReader.newInstance(size.getWidth(), size.getHeight(),
+            ImageFormat.YUV_420_888, 3);
+        reader.setOnImageAvailableListener(this::onImage, handler);
+        ring  = new ZslRingBuffer(size.getWidth(), size.getHeight(), RING_SLOTS);
+        frame = new byte[ring.frameSize()];
+    }
+
+    /** Open-to-first-frame time of the last open(), in ms (-1 before the first). */
+    public long getLastOpenMs()  { return lastOpenMs; }
+
+    /**
+     * Open the device and start streaming into the ring.
+     *
+     * @param onFirstFrame run on the camera thread once the ring has a frame; may be null
+     */
+    public void open(Runnable onFirstFrame, Runnable onFailed) {
+        this.onFirstFrame = onFirstFrame;
+        openCalledAt = SystemClock.elapsedRealtime();
+        ring.clear();   // frames from a previous open are stale
+        try {
+            manager.openCamera(cameraId, new CameraDevice.StateCallback() {
+                @Override public void onOpened(CameraDevice camera) {
+                    device = camera;
+                    startSession(onFailed);
+                }
+                @Override public void onDisconnected(CameraDevice camera) {
+                    camera.close();
+                }
+                @Override public void onError(CameraDevice camera, int error) {
+                    Log.e(TAG, "Camera " + cameraId + " error: " + error);
+                    camera.close();
+                    if (onFailed != null) onFailed.run();
+                }
+            }, handler);
+        } catch (SecurityException | CameraAccessException e) {
+            Log.e(TAG, "Open " + cameraId + " failed: " + e.getMessage());
+            if (onFailed != null) handler.post(onFailed);
+        }
+    }
+
+    private void startSession(Runnable onFailed) {
+        try {
+            device.createCaptureSession(Collections.singletonList(reader.getSurface()),
+                new CameraCaptureSession.StateCallback() {
+                    @Override public void onConfigured(CameraCaptureSession s) {
+                        session = s;
+                        try {
+                            CaptureRequest.Builder b = device.createCaptureRequest(
+                                CameraDevice.TEMPLATE_PREVIEW);
+                            b.addTarget(reader.getSurface());
+                            b.set(CaptureRequest.CONTROL_AF_MODE,
+                                CaptureRequest.CONTROL_AF_MODE_CONTINUOUS_PICTURE);
+                            s.setRepeatingRequest(b.build(), results, handler);
+                        } catch (Exception e) {
+                            Log.e(TAG, "Repeating request failed: " + e.getMessage());
+                            if (onFailed != null) onFailed.run();
+                        }
+                    }
+                    @Override public void onConfigureFailed(CameraCaptureSession s) {
+                        Log.e(TAG, "Session configure failed for " + cameraId);
+                        if (onFailed != null) onFailed.run();
+                    }
+                }, handler);
+        } catch (Exception e) {
+            Log.e(TAG, "Session creation failed: " + e.getMessage());
+            if (onFailed != null) onFailed.run();
+        }
+    }
+
+    private final CameraCaptureSession.CaptureCallback results =
+        new CameraCaptureSession.CaptureCallback() {
+            @Override
+            public void onCaptureCompleted(CameraCaptureSession s, CaptureRequest request,
+                                           TotalCaptureResult result) {
+                if (CameraEvidenceService.isConverged(result)) {
+                    Long ts = result.get(CaptureResult.SENSOR_TIMESTAMP);
+                    if (ts != null) ring.markConverged(ts);
+                }
+            }
+        };
+
+    private void onImage(ImageReader r) {
+        try (Image image = r.acquireLatestImage()) {
+            if (image == null) return;
+            long now = SystemClock.elapsedRealtime();
+            if (now - lastCopyAt < COPY_INTERVAL_MS) return;
+            lastCopyAt = now;
+            Image.Plane[] p = image.getPlanes();
+            ring.offer(p[0].getBuffer(), p[0].getRowStride(), p[0].getPixelStride(),
+                p[1].getBuffer(), p[2].getBuffer(), p[1].getRowStride(), p[1].getPixelStride(),
+                image.getTimestamp(), now);
+            if (onFirstFrame != null) {
+                lastOpenMs = now - openCalledAt;
+                Runnable r0 = onFirstFrame;
+                onFirstFrame = null;
+                r0.run();
+            }
+        } catch (Exception e) {
+            Log.e(TAG, "Frame copy failed: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Copy the best ring frame for {@code atMs} into the internal frame buffer.
+     *
+     * @return arrival time of the frame, or -1 if the ring is empty
+     */
+    public long grab(long atMs) { return ring.copyBest(atMs, frame); }
+
+    /** NV21 frame filled by the last successful {@link #grab}. Camera thread. */
+    public byte[] frame()  { return frame; }
+
+    public int getWidth()  { return ring.getWidth(); }
+
+    public int getHeight() { return ring.getHeight(); }
+
+    /** Stop streaming and close the device; the reader and ring are kept. */
+    public void close() {
+        try { if (session != null) { session.close(); session = null; } }
+        catch (Exception ignored) {}
+        try { if (device  != null) { device.close();  device  = null; } }
+        catch (Exception ignored) {}
+    }
+
+    public void release() {
+        close();
+        try { reader.close(); } catch (Exception ignored) {}
+    }
+}
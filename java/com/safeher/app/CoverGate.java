@@ -0,0 +1,67 @@
+package com.safeher.app;
+
+/**
+ * CoverGate
+ *
+ * Decides when HandGestureService may idle the gesture camera because the
+ * front of the phone is covered (pocket, bag, face-down). The camera goes
+ * idle DEBOUNCE_MS after the sensors report covered — unless the hold
+ * tracker is engaged, since a hand mid-gesture covers the sensors too; then
+ * the question is asked again a debounce later. Uncovering cancels a pending
+ * check and brings an idle camera back.
+ *
+ * Plain Java, driven by the caller's clock, so GestureReplayHarness checks
+ * the same decision the service makes. Not thread-safe — main thread only.
+ */
+public final class CoverGate {
+
+    /** Covered this long before the camera is idled. */
+    public static final long DEBOUNCE_MS = 1500;
+
+    private long    checkAt = -1;   // next poll() that may gate; -1 when uncovered
+    private boolean gated;
+
+    /**
+     * Feed a sensor transition.
+     *
+     * @return true when the camera was idle and should be bound again
+     */
+    public boolean onCoverChanged(boolean covered, long nowMs) {
+        if (covered) {
+            if (!gated && checkAt < 0) checkAt = nowMs + DEBOUNCE_MS;
+            return false;
+        }
+        checkAt = -1;
+        boolean wasGated = gated;
+        gated = false;
+        return wasGated;
+    }
+
+    /**
+     * Ask at or after {@link #getCheckAt()} whether to idle the camera now.
+     * When the tracker is engaged the check moves DEBOUNCE_MS later.
+     *
+     * @return true exactly once, when the camera should be idled
+     */
+    public boolean poll(long nowMs, boolean trackerEngaged) {
+        if (gated || checkAt < 0 || nowMs < checkAt) return false;
+        if (trackerEngaged) {
+            checkAt = nowMs + DEBOUNCE_MS;
+            return false;
+        }
+        checkAt = -1;
+        gated   = true;
+        return true;
+    }
+
+    /** Time of the next pending check, or -1 if none. */
+    public long getCheckAt() { return checkAt; }
+
+    public boolean isGated() { return gated; }
+
+    /** Forget any cover state (trigger mode changed). */
+    public void reset() {
+        checkAt = -1;
+        gated   = false;
+    }
+}
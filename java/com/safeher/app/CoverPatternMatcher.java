@@ -0,0 +1,77 @@
+package com.safeher.app;
+
+/**
+ * CoverPatternMatcher
+ *
+ * Recognises a deliberate cover → uncover → cover of the top of the screen
+ * from CoverSensorMonitor transitions, without the camera.
+ *
+ *   IDLE ──cover──▶ COVERED ──uncover (pulse MIN..MAX_PULSE_MS)──▶ GAP
+ *   GAP ──cover within MAX_GAP_MS──▶ match
+ *
+ * A long cover (phone slid into a pocket) fails the pulse limit and a slow
+ * re-cover starts a fresh attempt, so ordinary handling does not match.
+ * Works purely on sensor timestamps, so batched (late) delivery does not
+ * distort the timing.
+ *
+ * Not thread-safe — feed from a single thread.
+ */
+public class CoverPatternMatcher {
+
+    // Shorter covers are sensor bounce
+    public static final long MIN_PULSE_MS = 80;
+
+    // Longer covers are pocket / bag / face-down, not a tap
+    public static final long MAX_PULSE_MS = 1500;
+
+    // Uncovered gap allowed before the second cover
+    public static final long MAX_GAP_MS   = 1500;
+
+    private static final int STATE_IDLE    = 0;
+    private static final int STATE_COVERED = 1;
+    private static final int STATE_GAP     = 2;
+
+    private int  state = STATE_IDLE;
+    private long edgeAt;
+
+    /**
+     * Feed one cover transition.
+     *
+     * @param timestampMs event time (elapsedRealtime base)
+     * @return true when this transition completes the pattern
+     */
+    public boolean onCoverChanged(boolean covered, long timestampMs) {
+        switch (state) {
+            case STATE_IDLE:
+                if (covered) enter(STATE_COVERED, timestampMs);
+                return false;
+
+            case STATE_COVERED:
+                if (covered) return false;
+                long pulse = timestampMs - edgeAt;
+                if (pulse >= MIN_PULSE_MS && pulse <= MAX_PULSE_MS)
+                    enter(STATE_GAP, timestampMs);
+                else
+                    state = STATE_IDLE;
+                return false;
+
+            case STATE_GAP:
+                if (!covered) return false;
+                if (timestampMs - edgeAt <= MAX_GAP_MS) {
+                    state = STATE_IDLE;
+                    return true;
+                }
+                // Too slow — this cover may be the start of a new attempt
+                enter(STATE_COVERED, timestampMs);
+                return false;
+        }
+        return false;
+    }
+
+    public void reset() { state = STATE_IDLE; }
+
+    private void enter(int next, long ts) {
+        state  = next;
+        edgeAt = ts;
+    }
+}
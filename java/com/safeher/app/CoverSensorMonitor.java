@@ -0,0 +1,98 @@
+package com.safeher.app;
+
+import android.content.Context;
+import android.hardware.Sensor;
+import android.hardware.SensorEvent;
+import android.hardware.SensorEventListener;
+import android.hardware.SensorManager;
+import android.util.Log;
+
+/**
+ * CoverSensorMonitor
+ *
+ * Tells whether the front of the phone is covered (pocket, bag, face-down)
+ * from the proximity and ambient light sensors — both are hardware-batched,
+ * always-on class sensors that cost far less than a running camera.
+ *
+ * Covered = proximity reports "near" AND ambient light is below DARK_LUX.
+ * Requiring both keeps a hand held in front of the camera (near, but lit)
+ * from counting as covered. Without a proximity sensor, darkness alone is
+ * used; without either sensor the phone is never reported as covered.
+ *
+ * Transitions are delivered on the main thread with the sensor timestamp.
+ */
+public class CoverSensorMonitor implements SensorEventListener {
+
+    private static final String TAG = "CoverSensorMonitor";
+
+    // Below this the front camera sees nothing useful anyway
+    public static final float DARK_LUX = 5f;
+
+    public interface Listener {
+        /** @param timestampMs sensor event time, elapsedRealtime base */
+        void onCoverChanged(boolean covered, long timestampMs);
+    }
+
+    private final SensorManager sensorManager;
+    private final Sensor        proximity;
+    private final Sensor        light;
+    private final Listener      listener;
+    private final int           maxReportLatencyUs;
+
+    private boolean near    = false;
+    private boolean dark    = false;
+    private boolean covered = false;
+
+    /**
+     * @param maxReportLatencyUs hardware batching latency; 0 for immediate delivery
+     */
+    public CoverSensorMonitor(Context ctx, Listener listener, int maxReportLatencyUs) {
+        this.sensorManager      = (SensorManager) ctx.getSystemService(Context.SENSOR_SERVICE);
+        this.proximity          = sensorManager != null
+            ? sensorManager.getDefaultSensor(Sensor.TYPE_PROXIMITY) : null;
+        this.light              = sensorManager != null
+            ? sensorManager.getDefaultSensor(Sensor.TYPE_LIGHT) : null;
+        this.listener           = listener;
+        this.maxReportLatencyUs = maxReportLatencyUs;
+    }
+
+    public boolean isAvailable() { return proximity != null || light != null; }
+
+    public boolean isCovered()   { return covered; }
+
+    public void start() {
+        if (sensorManager == null) return;
+        if (proximity != null)
+            sensorManager.registerListener(this, proximity,
+                SensorManager.SENSOR_DELAY_NORMAL, maxReportLatencyUs);
+        if (light != null)
+            sensorManager.registerListener(this, light,
+                SensorManager.SENSOR_DELAY_NORMAL, maxReportLatencyUs);
+        // Without a light sensor, proximity alone decides
+        dark = light == null;
+        Log.d(TAG, "Cover sensors: proximity=" + (proximity != null) + " light=" + (light != null));
+    }
+
+    public void stop() {
+        if (sensorManager != null) sensorManager.unregisterListener(this);
+    }
+
+    @Override
+    public void onSensorChanged(SensorEvent e) {
+        int type = e.sensor.getType();
+        if (type == Sensor.TYPE_PROXIMITY) {
+            near = e.values[0] < Math.min(5f, e.sensor.getMaximumRange());
+        } else if (type == Sensor.TYPE_LIGHT) {
+            dark = e.values[0] < DARK_LUX;
+        } else {
+            return;
+        }
+        boolean now = (proximity == null || near) && dark;
+        if (now != covered) {
+            covered = now;
+            listener.onCoverChanged(now, e.timestamp / 1_000_000L);
+        }
+    }
+
+    @Override public void onAccuracyChanged(Sensor s, int a) {}
+}
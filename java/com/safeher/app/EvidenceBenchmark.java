@@ -0,0 +1,201 @@
+package com.safeher.app;
+
+import java.util.Locale;
+import java.util.Random;
+
+/**
+ * EvidenceBenchmark
+ *
+ * Plain JVM entry point (no Android classes) that times the CPU-side
+ * evidence stages against the capture interval, so changes to them can be
+ * checked before they reach a low-end phone:
+ *
+ *   java com.safeher.app.EvidenceBenchmark
+ *
+ * Frames are synthetic 1280×720 NV21: a sharp checkerboard and a
+ * box-blurred copy, which also checks that the scorer ranks them correctly.
+ * The scene hash is checked to call the blurred copy a duplicate and a
+ * shifted board a change. Low-light stacking runs on dark, noisy frames
+ * with known shake offsets and reports the offsets found and the noise
+ * left after averaging. The face detector must find a drawn face and stay
+ * quiet on the other synthetic scenes.
+ */
+public class EvidenceBenchmark {
+
+    private static final int W = 1280, H = 720, ROUNDS = 200;
+
+    // Same as CameraEvidenceService.BURST_FRAMES (not referenced: Android class)
+    private static final int BURST_FRAMES = 4;
+
+    public static void main(String[] args) {
+        byte[] sharp = new byte[YuvConverter.nv21Size(W, H)];
+        byte[] blurred = new byte[sharp.length];
+        Random rnd = new Random(7);
+        for (int y = 0; y < H; y++)
+            for (int x = 0; x < W; x++)
+                sharp[y * W + x] = (byte) ((((x >> 4) + (y >> 4)) & 1) == 0
+                    ? 40 + rnd.nextInt(6) : 200 + rnd.nextInt(6));
+        boxBlur(sharp, blurred, 5);
+
+        System.out.println(String.format(Locale.US,
+            "sharpness, %dx%d, %d frames/burst", W, H, BURST_FRAMES));
+        for (int d : new int[] { 1, 2, 4, 8 }) {
+            double s = SharpnessScorer.score(sharp, W, H, W, d);
+            double b = SharpnessScorer.score(blurred, W, H, W, d);
+            for (int i = 0; i < ROUNDS / 4; i++) SharpnessScorer.score(sharp, W, H, W, d);
+            long t0 = System.nanoTime();
+            for (int i = 0; i < ROUNDS; i++) SharpnessScorer.score(sharp, W, H, W, d);
+            double ms = (System.nanoTime() - t0) / 1e6 / ROUNDS;
+            System.out.println(String.format(Locale.US,
+                "decimate %d  %6.2f ms/frame  burst %6.2f ms  sharp=%.0f blurred=%.0f %s",
+                d, ms, ms * BURST_FRAMES, s, b,
+                s > b ? "ok" : "MIS-RANKED"));
+        }
+
+        // Hash scenes: smooth shapes plus sensor noise; a re-noised copy must
+        // read as a duplicate, the same scene panned by a quarter as a change
+        byte[] scene = new byte[sharp.length], renoised = new byte[sharp.length];
+        byte[] panned = new byte[sharp.length];
+        paintScene(scene, 0, rnd);
+        paintScene(renoised, 0, rnd);
+        paintScene(panned, W / 4, rnd);
+        long hScene = SceneChangePacer.dHash(scene, W, H);
+        for (int i = 0; i < ROUNDS; i++) SceneChangePacer.dHash(scene, W, H);
+        long t0 = System.nanoTime();
+        for (int i = 0; i < ROUNDS; i++) SceneChangePacer.dHash(scene, W, H);
+        double ms = (System.nanoTime() - t0) / 1e6 / ROUNDS;
+        int dup = SceneChangePacer.distance(hScene, SceneChangePacer.dHash(renoised, W, H));
+        int chg = SceneChangePacer.distance(hScene, SceneChangePacer.dHash(panned, W, H));
+        System.out.println(String.format(Locale.US,
+            "scene hash  %6.3f ms/frame  re-noised=%d bits %s  panned=%d bits %s", ms,
+            dup, dup <= SceneChangePacer.DUPLICATE_BITS ? "dup" : "NOT-DUP",
+            chg, chg >= SceneChangePacer.CHANGE_BITS ? "change" : "NO-CHANGE"));
+
+        benchStacking(rnd);
+        benchFaces(rnd, sharp, scene);
+    }
+
+    private static void benchFaces(Random rnd, byte[] checker, byte[] shapes) {
+        byte[] face = new byte[checker.length], dark = new byte[checker.length];
+        paintScene(face, W / 3, rnd);
+        paintFace(face, 520, 180, 300, rnd);
+        paintDark(dark, 0, 0, rnd);
+
+        FaceRegionDetector det = new FaceRegionDetector();
+        for (int i = 0; i < ROUNDS / 4; i++) det.detect(face, W, H);
+        long t0 = System.nanoTime();
+        for (int i = 0; i < ROUNDS; i++) det.detect(face, W, H);
+        double ms = (System.nanoTime() - t0) / 1e6 / ROUNDS;
+
+        boolean hit = det.detect(face, W, H);
+        String where = det.getFaceX() + "," + det.getFaceY() + " size " + det.getFaceSize();
+        boolean fp = det.detect(checker, W, H) | det.detect(shapes, W, H) | det.detect(dark, W, H);
+        System.out.println(String.format(Locale.US,
+            "faces       %6.2f ms/frame  face %s (%s)  other scenes %s", ms,
+            hit ? "found" : "MISSED", where, fp ? "FALSE POSITIVE" : "clean"));
+    }
+
+    /** Frontal face of size {@code s} at (x0, y0): skin, dark eyes and brows, mouth. */
+    private static void paintFace(byte[] dst, int x0, int y0, int s, Random rnd) {
+        for (int y = 0; y < s; y++) {
+            for (int x = 0; x < s; x++) {
+                double u = (x - s / 2.0) / (s * 0.45), v = (y - s * 0.52) / (s * 0.55);
+                if (u * u + v * v > 1) continue;                       // outside the head
+                int l = 175 - (int) (25 * (u * u));                      // shading at the sides
+                if (inEllipse(x, y, s * 0.30, s * 0.36, s * 0.11, s * 0.06)
+                        || inEllipse(x, y, s * 0.70, s * 0.36, s * 0.11, s * 0.06)) l = 55;
+                if (inEllipse(x, y, s * 0.30, s * 0.27, s * 0.13, s * 0.025)
+                        || inEllipse(x, y, s * 0.70, s * 0.27, s * 0.13, s * 0.025)) l = 70;
+                if (inEllipse(x, y, s * 0.50, s * 0.78, s * 0.16, s * 0.045)) l = 85;
+                l += rnd.nextInt(11) - 5;
+                dst[(y0 + y) * W + x0 + x] = (byte) Math.max(0, Math.min(255, l));
+            }
+        }
+    }
+
+    private static boolean inEllipse(int x, int y, double cx, double cy, double rx, double ry) {
+        double u = (x - cx) / rx, v = (y - cy) / ry;
+        return u * u + v * v <= 1;
+    }
+
+    private static void benchStacking(Random rnd) {
+        int[][] shake = { { 0, 0 }, { 8, -4 }, { -12, 4 }, { 4, 16 } };
+        byte[][] frames = new byte[BURST_FRAMES][YuvConverter.nv21Size(W, H)];
+        byte[] clean = new byte[frames[0].length], out = new byte[frames[0].length];
+        paintDark(clean, 0, 0, null);
+        for (int f = 0; f < BURST_FRAMES; f++) paintDark(frames[f], shake[f][0], shake[f][1], rnd);
+
+        LowLightStacker stacker = new LowLightStacker(W, H, BURST_FRAMES);
+        for (int i = 0; i < ROUNDS / 20; i++) stacker.stack(frames, BURST_FRAMES, out);
+        long t0 = System.nanoTime();
+        for (int i = 0; i < ROUNDS / 10; i++) stacker.stack(frames, BURST_FRAMES, out);
+        double ms = (System.nanoTime() - t0) / 1e6 / (ROUNDS / 10);
+
+        StringBuilder found = new StringBuilder();
+        boolean aligned = true;
+        for (int f = 1; f < BURST_FRAMES; f++) {
+            found.append(' ').append(stacker.getShiftX(f)).append(',').append(stacker.getShiftY(f));
+            aligned &= stacker.getShiftX(f) == shake[f][0] && stacker.getShiftY(f) == shake[f][1];
+        }
+        System.out.println(String.format(Locale.US,
+            "low light   %6.2f ms/stack (%d frames)  mean luma %d  shifts%s %s  "
+                + "noise %.1f -> %.1f", ms, BURST_FRAMES,
+            LowLightStacker.meanLuma(frames[0], W, H, 8), found, aligned ? "ok" : "MIS-ALIGNED",
+            rmsDiff(frames[0], clean), rmsDiff(out, clean)));
+    }
+
+    /** Dark smooth scene moved by (sx, sy); ±20 luma noise when {@code rnd} is set. */
+    private static void paintDark(byte[] dst, int sx, int sy, Random rnd) {
+        for (int y = 0; y < H; y++) {
+            for (int x = 0; x < W; x++) {
+                int cx = Math.max(0, Math.min(W - 1, x - sx));
+                int cy = Math.max(0, Math.min(H - 1, y - sy));
+                int l = 24 + (int) (14 * Math.sin(cx / 37.0) * Math.cos(cy / 23.0))
+                    + ((cx / 64 + cy / 48) % 3) * 6;
+                if (rnd != null) l += rnd.nextInt(41) - 20;
+                dst[y * W + x] = (byte) Math.max(0, Math.min(255, l));
+            }
+        }
+        for (int i = W * H; i < dst.length; i++) dst[i] = (byte) 128;
+    }
+
+    /** RMS luma difference over the interior (edges are clamped by the stacker). */
+    private static double rmsDiff(byte[] a, byte[] b) {
+        double sum = 0;
+        int n = 0;
+        for (int y = 32; y < H - 32; y++) {
+            for (int x = 32; x < W - 32; x++) {
+                int d = (a[y * W + x] & 0xFF) - (b[y * W + x] & 0xFF);
+                sum += d * d;
+                n++;
+            }
+        }
+        return Math.sqrt(sum / n);
+    }
+
+    /** Low-frequency shapes, offset by {@code panX}, with ±8 noise. */
+    private static void paintScene(byte[] dst, int panX, Random rnd) {
+        for (int y = 0; y < H; y++) {
+            for (int x = 0; x < W; x++) {
+                double u = (x + panX) * 2 * Math.PI / W, v = y * 2 * Math.PI / H;
+                int l = (int) (128 + 60 * Math.sin(u * 1.5) * Math.cos(v) + 30 * Math.sin(u * 3 + v * 2));
+                dst[y * W + x] = (byte) Math.max(0, Math.min(255, l + rnd.nextInt(17) - 8));
+            }
+        }
+    }
+
+    private static void boxBlur(byte[] src, byte[] dst, int r) {
+        for (int y = 0; y < H; y++) {
+            for (int x = 0; x < W; x++) {
+                int sum = 0, n = 0;
+                for (int dx = -r; dx <= r; dx++) {
+                    int xx = x + dx;
+                    if (xx < 0 || xx >= W) continue;
+                    sum += src[y * W + xx] & 0xFF;
+                    n++;
+                }
+                dst[y * W + x] = (byte) (sum / n);
+            }
+        }
+    }
+}
@@ -2,7 +2,7 @@ package com.safeher.app;
 
 import android.content.Context;
 import android.graphics.Bitmap;
-import android.graphics.BitmapFactory;
+import android.media.ExifInterface;
 import android.os.Handler;
 import android.os.Looper;
 import android.view.LayoutInflater;
@@ -52,31 +52,54 @@ public class EvidencePhotoAdapter extends RecyclerView.Adapter<EvidencePhotoAdap
         // Reset to placeholder while loading
         holder.ivThumb.setImageResource(android.R.drawable.ic_menu_camera);
 
-        // Decode thumbnail off the main thread
+        // Filename label now; EXIF time (and a pin if tagged) once read below
+        holder.tvTime.setText(formatName(file.getName()));
+
+        // Load the sidecar thumbnail off the main thread (made on first use if missing)
         executor.execute(() -> {
-            BitmapFactory.Options opts = new BitmapFactory.Options();
-            opts.inSampleSize = 4; // quarter resolution = fast load
-            Bitmap bm = BitmapFactory.decodeFile(file.getAbsolutePath(), opts);
+            Bitmap bm = EvidenceThumbs.load(file);
+            String label = exifLabel(file);
             mainHandler.post(() -> {
-                if (holder.getBindingAdapterPosition() == position && bm != null) {
-                    holder.ivThumb.setImageBitmap(bm);
-                }
+                if (holder.getBindingAdapterPosition() != position) return;
+                if (bm != null) holder.ivThumb.setImageBitmap(bm);
+                if (label != null) holder.tvTime.setText(label);
             });
         });
 
-        // Format timestamp label from filename: CAM_20240101_120000_3.jpg
-        holder.tvTime.setText(formatName(file.getName()));
-
         holder.itemView.setOnClickListener(v -> listener.onPhotoClick(file));
     }
 
     @Override public int getItemCount() { return photos.size(); }
 
+    /** Create thumbnails for older photos in the background. */
+    public void backfillThumbs(File dir) {
+        executor.execute(() -> EvidenceThumbs.backfill(dir));
+    }
+
+    /**
+     * "dd MMM  HH:mm:ss" from EXIF DateTimeOriginal, with a pin when the
+     * photo is GPS-tagged; null for photos saved without EXIF.
+     */
+    static String exifLabel(File file) {
+        try {
+            ExifInterface exif = new ExifInterface(file.getAbsolutePath());
+            String dt = exif.getAttribute(ExifInterface.TAG_DATETIME_ORIGINAL);
+            if (dt == null) return null;
+            Date d = new SimpleDateFormat("yyyy:MM:dd HH:mm:ss", Locale.US).parse(dt);
+            if (d == null) return null;
+            String label = new SimpleDateFormat("dd MMM  HH:mm:ss", Locale.US).format(d);
+            return exif.getLatLong(new float[2]) ? label + "  📍" : label;
+        } catch (Exception e) {
+            return null;
+        }
+    }
+
+    // Format timestamp label from filename: CAM_20240101_120000_3.jpg
     private String formatName(String name) {
         // Try to parse yyyyMMdd_HHmmss from filename
         try {
-            // filename: CAM_20240101_120000_3.jpg  →  strip prefix & suffix
-            String part = name.replace("CAM_", "").replaceAll("_\\d+\\.jpg$", "");
+            // filename: CAM_20240101_120000_3.jpg (or _f1 for gesture hand-off)
+            String part = name.replace("CAM_", "").replaceAll("_[a-z]?\\d+\\.jpg$", "");
             Date d = new SimpleDateFormat("yyyyMMdd_HHmmss", Locale.US).parse(part);
             if (d != null)
                 return new SimpleDateFormat("dd MMM  HH:mm:ss", Locale.US).format(d);
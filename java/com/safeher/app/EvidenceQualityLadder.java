@@ -0,0 +1,122 @@
+package com.safeher.app;
+
+import android.content.Context;
+import android.content.Intent;
+import android.content.IntentFilter;
+import android.os.BatteryManager;
+import android.util.Log;
+
+import java.io.File;
+
+/**
+ * EvidenceQualityLadder
+ *
+ * Picks the JPEG quality and scale of evidence photos from free storage and
+ * battery, so a long incident neither fills the disk nor drains the phone
+ * before contacts arrive. The lower rungs halve the frame in each direction
+ * (a quarter of the pixels to encode and store) and lower the quality.
+ *
+ * Storage comes from the evidence folder's volume; battery from the sticky
+ * ACTION_BATTERY_CHANGED broadcast (charging lifts the battery limit). The
+ * stricter of the two wins. Within one incident the ladder only steps down,
+ * so photos do not flip between sizes as the readings wobble.
+ *
+ * check() does a little I/O and is meant for the encoder thread.
+ */
+public class EvidenceQualityLadder {
+
+    private static final String TAG = "QualityLadder";
+
+    /** One rung. */
+    public static final class Rung {
+        public final int    level;
+        public final String name;
+        public final boolean half;      // encode at half width and height
+        public final int    jpegQuality;
+
+        Rung(int level, String name, boolean half, int jpegQuality) {
+            this.level       = level;
+            this.name        = name;
+            this.half        = half;
+            this.jpegQuality = jpegQuality;
+        }
+
+        @Override public String toString() {
+            return name + " (" + (half ? "½ size" : "full size") + ", q" + jpegQuality + ")";
+        }
+    }
+
+    public static final Rung[] RUNGS = {
+        new Rung(0, "FULL", false, 85),
+        new Rung(1, "HIGH", false, 70),
+        new Rung(2, "HALF", true,  70),
+        new Rung(3, "LOW",  true,  50),
+    };
+
+    // Free-space thresholds for rungs 1..3
+    private static final long STORAGE_HIGH = 2048L * 1024 * 1024;
+    private static final long STORAGE_HALF = 1024L * 1024 * 1024;
+    private static final long STORAGE_LOW  =  300L * 1024 * 1024;
+
+    // Battery thresholds (percent) for rungs 1..3 when not charging
+    private static final int BATTERY_HIGH = 40;
+    private static final int BATTERY_HALF = 25;
+    private static final int BATTERY_LOW  = 12;
+
+    private static final long CHECK_INTERVAL_MS = 15_000;
+
+    private final Context ctx;
+    private final File    dir;
+
+    private volatile Rung rung = RUNGS[0];
+    private long lastCheckAt = 0;
+
+    public EvidenceQualityLadder(Context ctx, File dir) {
+        this.ctx = ctx.getApplicationContext();
+        this.dir = dir;
+    }
+
+    public Rung getRung() { return rung; }
+
+    /** Re-read storage and battery if due; returns the rung to use now. */
+    public Rung check(long nowMs) {
+        if (lastCheckAt != 0 && nowMs - lastCheckAt < CHECK_INTERVAL_MS) return rung;
+        lastCheckAt = nowMs;
+
+        long free = dir.getUsableSpace();
+        int  pct = 100;
+        boolean charging = false;
+        Intent b = ctx.registerReceiver(null, new IntentFilter(Intent.ACTION_BATTERY_CHANGED));
+        if (b != null) {
+            int level = b.getIntExtra(BatteryManager.EXTRA_LEVEL, -1);
+            int scale = b.getIntExtra(BatteryManager.EXTRA_SCALE, 100);
+            int status = b.getIntExtra(BatteryManager.EXTRA_STATUS, -1);
+            if (level >= 0 && scale > 0) pct = level * 100 / scale;
+            charging = status == BatteryManager.BATTERY_STATUS_CHARGING
+                    || status == BatteryManager.BATTERY_STATUS_FULL;
+        }
+
+        int level = Math.max(storageLevel(free), charging ? 0 : batteryLevel(pct));
+        if (level > rung.level) {
+            Log.d(TAG, "Evidence quality " + rung.name + " → " + RUNGS[level]
+                + " (free " + free / (1024 * 1024) + " MB, battery " + pct + "%"
+                + (charging ? " charging" : "") + ")");
+            rung = RUNGS[level];
+        }
+        return rung;
+    }
+
+    static int storageLevel(long freeBytes) {
+        if (freeBytes < STORAGE_LOW)  return 3;
+        if (freeBytes < STORAGE_HALF) return 2;
+        if (freeBytes < STORAGE_HIGH) return 1;
+        return 0;
+    }
+
+    static int batteryLevel(int pct) {
+        if (pct <= BATTERY_LOW)  return 3;
+        if (pct <= BATTERY_HALF) return 2;
+        if (pct <= BATTERY_HIGH) return 1;
+        return 0;
+    }
+}
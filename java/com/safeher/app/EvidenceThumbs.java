@@ -0,0 +1,162 @@
+package com.safeher.app;
+
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.graphics.ImageFormat;
+import android.graphics.Rect;
+import android.graphics.YuvImage;
+import android.util.Log;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.OutputStream;
+
+/**
+ * EvidenceThumbs
+ *
+ * ~160 px sidecar thumbnails for evidence photos, stored under the evidence
+ * folder as .thumbs/<same name>. The gallery decodes these (a few KB)
+ * instead of the full JPEG.
+ *
+ * New photos get their thumbnail at capture time, shrunk from the NV21
+ * frame that is being encoded anyway, or decoded at a small sample size
+ * from a still capture's JPEG. Photos without one (older incidents, failed
+ * encodes) get it lazily: on first display, or from backfill(), which the
+ * gallery runs once in the background.
+ */
+public final class EvidenceThumbs {
+
+    private static final String TAG = "EvidenceThumbs";
+
+    public static final String DIR          = ".thumbs";
+    public static final int    TARGET_WIDTH = 160;
+    private static final int   JPEG_QUALITY = 70;
+
+    private EvidenceThumbs() {}
+
+    public static File thumbFor(File photo) {
+        return new File(new File(photo.getParentFile(), DIR), photo.getName());
+    }
+
+    /** Encode a thumbnail of an NV21 frame as JPEG into {@code out}. */
+    public static void encodeNv21(byte[] nv21, int w, int h, OutputStream out) {
+        int factor = Math.max(1, w / TARGET_WIDTH);
+        int tw = w / factor, th = h / factor;
+        byte[] small = new byte[YuvConverter.nv21Size(tw, th)];
+        YuvConverter.shrinkNv21(nv21, w, h, factor, small);
+        new YuvImage(small, ImageFormat.NV21, tw, th, null)
+            .compressToJpeg(new Rect(0, 0, tw, th), JPEG_QUALITY, out);
+    }
+
+    /**
+     * Encode a thumbnail of a finished JPEG (a still capture) into {@code out}.
+     * Decodes at a power-of-two sample size, so only a small bitmap is made.
+     */
+    public static void encodeJpeg(byte[] jpeg, int length, OutputStream out) {
+        BitmapFactory.Options opts = new BitmapFactory.Options();
+        opts.inJustDecodeBounds = true;
+        BitmapFactory.decodeByteArray(jpeg, 0, length, opts);
+        if (opts.outWidth <= 0) throw new IllegalArgumentException("Undecodable JPEG");
+        int width = opts.outWidth;
+        opts = new BitmapFactory.Options();
+        opts.inSampleSize = sampleFor(width);
+        Bitmap bm = scaled(BitmapFactory.decodeByteArray(jpeg, 0, length, opts));
+        if (bm == null) throw new IllegalArgumentException("Undecodable JPEG");
+        bm.compress(Bitmap.CompressFormat.JPEG, JPEG_QUALITY, out);
+        bm.recycle();
+    }
+
+    /** Write the thumbnail of a photo that was saved directly from NV21. */
+    public static void writeNv21(byte[] nv21, int w, int h, File photo) {
+        File thumb = thumbFor(photo);
+        thumb.getParentFile().mkdirs();
+        try (FileOutputStream fos = new FileOutputStream(thumb)) {
+            encodeNv21(nv21, w, h, fos);
+        } catch (Exception e) {
+            Log.e(TAG, "Thumbnail failed " + photo.getName() + ": " + e.getMessage());
+        }
+    }
+
+    /**
+     * Thumbnail bitmap for the gallery, created from the full photo if it
+     * has none yet. Call off the main thread.
+     */
+    public static Bitmap load(File photo) {
+        File thumb = thumbFor(photo);
+        if (thumb.length() > 0) {
+            Bitmap bm = BitmapFactory.decodeFile(thumb.getAbsolutePath());
+            if (bm != null) return bm;
+        }
+        return create(photo, thumb);
+    }
+
+    /** Create missing thumbnails and drop ones whose photo is gone. Background thread. */
+    public static void backfill(File dir) {
+        File[] photos = dir.listFiles(
+            f -> f.getName().startsWith("CAM_") && f.getName().endsWith(".jpg"));
+        int made = 0;
+        if (photos != null) {
+            for (File p : photos) {
+                if (thumbFor(p).length() > 0) continue;
+                Bitmap bm = create(p, thumbFor(p));
+                if (bm != null) { bm.recycle(); made++; }
+            }
+        }
+        int dropped = 0;
+        File[] thumbs = new File(dir, DIR).listFiles();
+        if (thumbs != null) {
+            for (File t : thumbs) {
+                if (!new File(dir, t.getName()).exists() && t.delete()) dropped++;
+            }
+        }
+        if (made + dropped > 0) {
+            Log.d(TAG, "Backfill: " + made + " created, " + dropped + " orphan(s) removed");
+        }
+    }
+
+    /** Delete a photo's thumbnail along with it. */
+    public static void delete(File photo) {
+        thumbFor(photo).delete();
+    }
+
+    private static Bitmap create(File photo, File thumb) {
+        BitmapFactory.Options opts = new BitmapFactory.Options();
+        opts.inJustDecodeBounds = true;
+        BitmapFactory.decodeFile(photo.getAbsolutePath(), opts);
+        if (opts.outWidth <= 0) return null;
+        int width = opts.outWidth;
+        opts = new BitmapFactory.Options();
+        opts.inSampleSize = sampleFor(width);
+        Bitmap bm = scaled(BitmapFactory.decodeFile(photo.getAbsolutePath(), opts));
+        if (bm == null) return null;
+
+        // Written to a temp name first so a half-written thumbnail is never read
+        thumb.getParentFile().mkdirs();
+        File tmp = new File(thumb.getParentFile(), thumb.getName() + ".tmp");
+        try (FileOutputStream fos = new FileOutputStream(tmp)) {
+            bm.compress(Bitmap.CompressFormat.JPEG, JPEG_QUALITY, fos);
+        } catch (Exception e) {
+            Log.e(TAG, "Thumbnail failed " + photo.getName() + ": " + e.getMessage());
+            tmp.delete();
+            return bm;
+        }
+        if (!tmp.renameTo(thumb)) tmp.delete();
+        return bm;
+    }
+
+    /** Largest power-of-two decode sample that keeps at least TARGET_WIDTH. */
+    private static int sampleFor(int width) {
+        int sample = 1;
+        while (width / (sample * 2) >= TARGET_WIDTH) sample *= 2;
+        return sample;
+    }
+
+    /** Scale a decoded bitmap to TARGET_WIDTH; recycles the input. */
+    private static Bitmap scaled(Bitmap full) {
+        if (full == null) return null;
+        int th = Math.max(1, full.getHeight() * TARGET_WIDTH / full.getWidth());
+        Bitmap bm = Bitmap.createScaledBitmap(full, TARGET_WIDTH, th, true);
+        if (bm != full) full.recycle();
+        return bm;
+    }
+}
@@ -0,0 +1,365 @@
+package com.safeher.app;
+
+import android.util.Log;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.Locale;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * EvidenceWriter
+ *
+ * Dedicated I/O stage for evidence files so the camera thread never waits
+ * on storage. Capture code fills a pooled {@link Buffer} (a plain memcpy of
+ * the JPEG, or an encoder writing into it), submits it, and goes back to the
+ * camera; the writer thread names the file from the capture time passed
+ * with it, writes it through a FileChannel and returns the buffer to the pool.
+ *
+ * The queue is bounded: when storage falls behind, new submissions are
+ * dropped (and counted) rather than growing memory without limit.
+ *
+ * A submission may carry a thumbnail buffer; it is written after the photo
+ * as .thumbs/<same name> and never fsynced (it can be regenerated).
+ *
+ * Durability follows the fsync policy: FSYNC_NEVER leaves it to the kernel,
+ * FSYNC_EACH forces every file to disk before the next, FSYNC_PERIODIC
+ * forces the files written so far at most once per FSYNC_PERIOD_MS, when
+ * the queue goes idle, and on stop.
+ *
+ * CRASH SAFETY: files are written as <name>.part and renamed once forced
+ * (FSYNC_NEVER: once closed), so a crash never leaves a torn photo under
+ * its real name. The first writer of a process finishes what an earlier
+ * process left behind: a .part JPEG ending in an EOI marker is renamed, any
+ * other JPEG part is deleted. Only parts last modified before this class
+ * was loaded count as leftovers, since several writers (the evidence
+ * service, the gesture hand-off) share the folder and a newer part may
+ * still be in flight on another one.
+ *
+ * Metrics (queue depth, write latency, written/dropped counts) can be read
+ * from any thread.
+ */
+public class EvidenceWriter {
+
+    private static final String TAG = "EvidenceWriter";
+
+    public static final int  FSYNC_NEVER    = 0;
+    public static final int  FSYNC_EACH     = 1;
+    public static final int  FSYNC_PERIODIC = 2;
+
+    private static final long FSYNC_PERIOD_MS = 2000;
+
+    public  static final String PART = ".part";
+
+    // Parts modified before this are from an earlier process
+    private static final long LOADED_AT = System.currentTimeMillis();
+    private static final AtomicBoolean recovered = new AtomicBoolean();
+
+    // Initial pooled buffer size — grows to fit the largest JPEG seen
+    private static final int  INITIAL_BUFFER  = 256 * 1024;
+
+    /** Growable byte sink handed out by {@link #obtain()}. */
+    public static final class Buffer extends OutputStream {
+        byte[] data = new byte[INITIAL_BUFFER];
+        int    length;
+
+        // Filled in by submit()
+        String prefix, suffix;
+        String label;
+        Buffer thumb;
+        long   capturedAt;
+        long   submittedNs;
+
+        public void reset() { length = 0; }
+
+        /** Copy the remaining bytes of {@code src} (e.g. a JPEG image plane). */
+        public void put(ByteBuffer src) {
+            int n = src.remaining();
+            ensure(length + n);
+            src.get(data, length, n);
+            length += n;
+        }
+
+        @Override public void write(int b) {
+            ensure(length + 1);
+            data[length++] = (byte) b;
+        }
+
+        @Override public void write(byte[] b, int off, int len) {
+            ensure(length + len);
+            System.arraycopy(b, off, data, length, len);
+            length += len;
+        }
+
+        private void ensure(int size) {
+            if (size <= data.length) return;
+            byte[] bigger = new byte[Math.max(size, data.length * 2)];
+            System.arraycopy(data, 0, bigger, 0, length);
+            data = bigger;
+        }
+    }
+
+    private final File dir;
+    private final int  fsyncPolicy;
+    private final ArrayBlockingQueue<Buffer> queue;
+    private final ArrayBlockingQueue<Buffer> pool;
+
+    private Thread           thread;
+    private volatile boolean running;
+
+    // Queued by stop() behind the remaining files; the thread exits on it.
+    // (No interrupt: it would close a FileChannel mid-write.)
+    private final Buffer stopMarker = new Buffer();
+
+    // Writer thread only
+    private long lastSyncAt;
+    private final ArrayList<File> pendingSync = new ArrayList<>();
+
+    // Metrics
+    private volatile int  written, maxDepth;
+    private final AtomicInteger dropped = new AtomicInteger();
+    private volatile long lastWriteMs, maxWriteMs, totalWriteMs;
+
+    /**
+     * @param queueCapacity files allowed to wait for storage
+     * @param fsyncPolicy   one of the FSYNC_* constants
+     */
+    public EvidenceWriter(File dir, int queueCapacity, int fsyncPolicy) {
+        this.dir         = dir;
+        this.fsyncPolicy = fsyncPolicy;
+        this.queue       = new ArrayBlockingQueue<>(queueCapacity);
+        // A couple beyond the queue: buffers are being filled while it is full
+        this.pool        = new ArrayBlockingQueue<>(queueCapacity + 2);
+    }
+
+    /** Maps a stored preference ("never" / "each" / "periodic") to a policy. */
+    public static int parsePolicy(String s) {
+        if ("never".equals(s)) return FSYNC_NEVER;
+        if ("each".equals(s))  return FSYNC_EACH;
+        return FSYNC_PERIODIC;
+    }
+
+    public void start() {
+        if (running) return;
+        running = true;
+        thread = new Thread(this::loop, "EvidenceWriter");
+        thread.start();
+    }
+
+    /** Write everything still queued, sync, and stop the thread. */
+    public void stop() {
+        if (!running) return;
+        running = false;
+        try {
+            if (queue.offer(stopMarker, 3, TimeUnit.SECONDS)) thread.join(3000);
+        } catch (InterruptedException ignored) {}
+        thread = null;
+    }
+
+    /** A cleared buffer from the pool (or a new one when the pool is empty). */
+    public Buffer obtain() {
+        Buffer b = pool.poll();
+        if (b == null) b = new Buffer();
+        b.reset();
+        return b;
+    }
+
+    /** The name a submitted file is written under, so callers can find it later. */
+    public static String fileName(String prefix, long capturedAtMs, String label, String suffix) {
+        return prefix + new SimpleDateFormat("yyyyMMdd_HHmmss", Locale.US)
+            .format(new Date(capturedAtMs)) + "_" + label + suffix;
+    }
+
+    /**
+     * Queue a filled buffer as {@code <prefix><yyyyMMdd_HHmmss>_<label><suffix>},
+     * stamped with the current time.
+     *
+     * @return false if the queue was full and the file was dropped
+     */
+    public boolean submit(Buffer b, String prefix, String label, String suffix) {
+        return submit(b, prefix, label, suffix, null, System.currentTimeMillis());
+    }
+
+    /**
+     * As above, with a thumbnail JPEG for the gallery (may be null) and the
+     * wall-clock time the frame was captured, which the name is built from.
+     */
+    public boolean submit(Buffer b, String prefix, String label, String suffix, Buffer thumb,
+                          long capturedAtMs) {
+        b.thumb = thumb;
+        if (!running) { recycle(b); return false; }
+        b.prefix      = prefix;
+        b.label       = label;
+        b.suffix      = suffix;
+        b.capturedAt  = capturedAtMs;
+        b.submittedNs = System.nanoTime();
+        if (!queue.offer(b)) {
+            dropped.incrementAndGet();
+            recycle(b);
+            Log.w(TAG, "Queue full, dropped " + prefix + label);
+            return false;
+        }
+        int depth = queue.size();
+        if (depth > maxDepth) maxDepth = depth;
+        return true;
+    }
+
+    /** Return an unused buffer (and its thumbnail) to the pool. */
+    public void recycle(Buffer b) {
+        if (b.thumb != null) { pool.offer(b.thumb); b.thumb = null; }
+        pool.offer(b);
+    }
+
+    // ── Writer thread ─────────────────────────────────────────────────────────
+
+    private void loop() {
+        recoverParts();
+        while (true) {
+            Buffer b;
+            try {
+                b = queue.poll(FSYNC_PERIOD_MS, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                break;
+            }
+            if (b == stopMarker) break;
+            if (b == null) {
+                syncPending();   // idle: good moment to make earlier files durable
+                continue;
+            }
+            write(b);
+            recycle(b);
+            if (fsyncPolicy == FSYNC_PERIODIC
+                    && System.currentTimeMillis() - lastSyncAt >= FSYNC_PERIOD_MS) {
+                syncPending();
+            }
+        }
+        syncPending();
+        Log.d(TAG, statsLine());
+    }
+
+    private void write(Buffer b) {
+        String name = fileName(b.prefix, b.capturedAt, b.label, b.suffix);
+        File part = new File(dir, name + PART);
+        try (FileOutputStream fos = new FileOutputStream(part);
+             FileChannel ch = fos.getChannel()) {
+            ByteBuffer src = ByteBuffer.wrap(b.data, 0, b.length);
+            while (src.hasRemaining()) ch.write(src);
+            if (fsyncPolicy == FSYNC_EACH) ch.force(false);
+        } catch (Exception e) {
+            Log.e(TAG, "Write failed " + name + ": " + e.getMessage());
+            part.delete();
+            return;
+        }
+        if (fsyncPolicy == FSYNC_PERIODIC) pendingSync.add(part);
+        else publish(part);
+        long ms = (System.nanoTime() - b.submittedNs) / 1_000_000L;
+        lastWriteMs   = ms;
+        totalWriteMs += ms;
+        if (ms > maxWriteMs) maxWriteMs = ms;
+        written++;
+        Log.d(TAG, "Saved " + name + " in " + ms + "ms (queue " + queue.size() + ")");
+        if (b.thumb != null) writeThumb(b.thumb, name);
+    }
+
+    private void writeThumb(Buffer t, String name) {
+        File thumbs = new File(dir, EvidenceThumbs.DIR);
+        if (!thumbs.exists()) thumbs.mkdirs();
+        try (FileOutputStream fos = new FileOutputStream(new File(thumbs, name))) {
+            fos.write(t.data, 0, t.length);
+        } catch (Exception e) {
+            Log.e(TAG, "Thumbnail write failed " + name + ": " + e.getMessage());
+        }
+    }
+
+    private void syncPending() {
+        lastSyncAt = System.currentTimeMillis();
+        if (pendingSync.isEmpty()) return;
+        for (File f : pendingSync) {
+            // WRITE without CREATE: a part evicted meanwhile stays gone
+            try (FileChannel ch = FileChannel.open(f.toPath(), StandardOpenOption.WRITE)) {
+                ch.force(false);
+            } catch (Exception e) {
+                Log.e(TAG, "fsync failed " + f.getName() + ": " + e.getMessage());
+                continue;
+            }
+            publish(f);
+        }
+        pendingSync.clear();
+    }
+
+    /** Rename a finished .part to its real name. */
+    private static void publish(File part) {
+        String n = part.getName();
+        File done = new File(part.getParentFile(), n.substring(0, n.length() - PART.length()));
+        if (!part.renameTo(done)) Log.e(TAG, "Rename failed " + n);
+    }
+
+    /** Leftovers of a process that died before its files were published. Once per process. */
+    private void recoverParts() {
+        if (!recovered.compareAndSet(false, true)) return;
+        File[] parts = dir.listFiles(f -> f.getName().endsWith(PART));
+        if (parts == null) return;
+        for (File f : parts) {
+            // Video and timelapse parts belong to their own writers
+            if (!f.getName().endsWith(".jpg" + PART)) continue;
+            // Written by this process: another writer may still be on it
+            if (f.lastModified() >= LOADED_AT) continue;
+            if (endsWithEoi(f)) {
+                publish(f);
+                Log.w(TAG, "Recovered " + f.getName());
+            } else {
+                f.delete();
+                Log.w(TAG, "Deleted torn " + f.getName());
+            }
+        }
+    }
+
+    private static boolean endsWithEoi(File f) {
+        try (RandomAccessFile raf = new RandomAccessFile(f, "r")) {
+            long len = raf.length();
+            if (len < 4) return false;
+            raf.seek(len - 2);
+            return raf.read() == 0xFF && raf.read() == 0xD9;
+        } catch (Exception e) {
+            return false;
+        }
+    }
+
+    // ── Metrics ───────────────────────────────────────────────────────────────
+
+    public int  getQueueDepth()    { return queue.size(); }
+
+    public int  getMaxQueueDepth() { return maxDepth; }
+
+    public int  getWrittenCount()  { return written; }
+
+    public int  getDroppedCount()  { return dropped.get(); }
+
+    /** Submit-to-written latency of the last file, in ms. */
+    public long getLastWriteMs()   { return lastWriteMs; }
+
+    public long getMaxWriteMs()    { return maxWriteMs; }
+
+    public long getAvgWriteMs() {
+        int n = written;
+        return n > 0 ? totalWriteMs / n : 0;
+    }
+
+    public String statsLine() {
+        return String.format(Locale.US,
+            "written=%d dropped=%d queue=%d (max %d) latency last=%dms avg=%dms max=%dms",
+            written, dropped.get(), getQueueDepth(), maxDepth,
+            lastWriteMs, getAvgWriteMs(), maxWriteMs);
+    }
+}
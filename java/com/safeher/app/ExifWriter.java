@@ -0,0 +1,292 @@
+package com.safeher.app;
+
+import java.io.ByteArrayOutputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Locale;
+import java.util.TimeZone;
+
+/**
+ * ExifWriter
+ *
+ * Builds a small EXIF APP1 segment for evidence JPEGs, so capture time and
+ * location travel inside the file instead of only in its name. The segment
+ * is spliced in right after the JPEG's SOI marker while the encoder writes
+ * the JPEG, or while a finished still capture is copied out, replacing the
+ * camera's own EXIF (see {@link #splice}); the image is never decoded or
+ * re-encoded.
+ *
+ * Tags written:
+ *   Exif IFD  DateTimeOriginal, SubSecTimeOriginal, OffsetTimeOriginal
+ *   GPS IFD   version, latitude/longitude (+ refs), altitude, horizontal
+ *             error, UTC time and date of the fix — only when a fix is known
+ *
+ * Big-endian TIFF ("MM"). Plain Java, no Android classes.
+ */
+public final class ExifWriter {
+
+    /** A location fix, decoupled from android.location.Location. */
+    public static final class Fix {
+        public final double latitude, longitude;
+        public final double altitude;      // metres, NaN if unknown
+        public final float  accuracyM;     // 0 if unknown
+        public final long   timeMs;        // wall clock of the fix
+
+        public Fix(double latitude, double longitude, double altitude,
+                   float accuracyM, long timeMs) {
+            this.latitude  = latitude;
+            this.longitude = longitude;
+            this.altitude  = altitude;
+            this.accuracyM = accuracyM;
+            this.timeMs    = timeMs;
+        }
+    }
+
+    // Field types
+    private static final int BYTE = 1, ASCII = 2, LONG = 4, RATIONAL = 5;
+
+    private static final int TAG_EXIF_IFD         = 0x8769;
+    private static final int TAG_GPS_IFD          = 0x8825;
+    private static final int TAG_DATETIME_ORIG    = 0x9003;
+    private static final int TAG_OFFSET_TIME_ORIG = 0x9011;
+    private static final int TAG_SUBSEC_ORIG      = 0x9291;
+    private static final int TAG_GPS_VERSION      = 0x0000;
+    private static final int TAG_GPS_LAT_REF      = 0x0001;
+    private static final int TAG_GPS_LAT          = 0x0002;
+    private static final int TAG_GPS_LNG_REF      = 0x0003;
+    private static final int TAG_GPS_LNG          = 0x0004;
+    private static final int TAG_GPS_ALT_REF      = 0x0005;
+    private static final int TAG_GPS_ALT          = 0x0006;
+    private static final int TAG_GPS_TIME         = 0x0007;
+    private static final int TAG_GPS_DATE         = 0x001D;
+    private static final int TAG_GPS_H_ERROR      = 0x001F;
+
+    private ExifWriter() {}
+
+    /**
+     * Complete APP1 segment (marker, length, "Exif\0\0", TIFF) for a photo
+     * taken at {@code wallTimeMs}.
+     *
+     * @param fix latest location fix, or null
+     */
+    public static byte[] buildApp1(long wallTimeMs, TimeZone zone, Fix fix) {
+        SimpleDateFormat local = new SimpleDateFormat("yyyy:MM:dd HH:mm:ss", Locale.US);
+        local.setTimeZone(zone);
+        int offsetMin = zone.getOffset(wallTimeMs) / 60_000;
+        String offset = String.format(Locale.US, "%c%02d:%02d",
+            offsetMin < 0 ? '-' : '+', Math.abs(offsetMin) / 60, Math.abs(offsetMin) % 60);
+
+        Ifd exif = new Ifd();
+        exif.ascii(TAG_DATETIME_ORIG, local.format(new Date(wallTimeMs)));
+        exif.ascii(TAG_OFFSET_TIME_ORIG, offset);
+        exif.ascii(TAG_SUBSEC_ORIG, String.format(Locale.US, "%03d", wallTimeMs % 1000));
+
+        Ifd gps = null;
+        if (fix != null) {
+            gps = new Ifd();
+            gps.bytes(TAG_GPS_VERSION, new byte[] { 2, 2, 0, 0 });
+            gps.ascii(TAG_GPS_LAT_REF, fix.latitude < 0 ? "S" : "N");
+            gps.rationals(TAG_GPS_LAT, dms(Math.abs(fix.latitude)));
+            gps.ascii(TAG_GPS_LNG_REF, fix.longitude < 0 ? "W" : "E");
+            gps.rationals(TAG_GPS_LNG, dms(Math.abs(fix.longitude)));
+            if (!Double.isNaN(fix.altitude)) {
+                gps.bytes(TAG_GPS_ALT_REF, new byte[] { (byte) (fix.altitude < 0 ? 1 : 0) });
+                gps.rationals(TAG_GPS_ALT,
+                    new long[] { Math.round(Math.abs(fix.altitude) * 100), 100 });
+            }
+            SimpleDateFormat utc = new SimpleDateFormat("yyyy:MM:dd HH mm ss", Locale.US);
+            utc.setTimeZone(TimeZone.getTimeZone("UTC"));
+            String[] t = utc.format(new Date(fix.timeMs)).split(" ");
+            gps.rationals(TAG_GPS_TIME, new long[] {
+                Long.parseLong(t[1]), 1, Long.parseLong(t[2]), 1, Long.parseLong(t[3]), 1 });
+            gps.ascii(TAG_GPS_DATE, t[0]);
+            if (fix.accuracyM > 0) {
+                gps.rationals(TAG_GPS_H_ERROR, new long[] { Math.round(fix.accuracyM * 10), 10 });
+            }
+        }
+
+        // Layout: header(8) | IFD0 | Exif IFD | GPS IFD, each followed by its data
+        Ifd ifd0 = new Ifd();
+        ifd0.longValue(TAG_EXIF_IFD, 0);
+        if (gps != null) ifd0.longValue(TAG_GPS_IFD, 0);
+        int exifAt = 8 + ifd0.size();
+        int gpsAt  = exifAt + exif.size();
+        ifd0.entries.get(0).setLong(exifAt);
+        if (gps != null) ifd0.entries.get(1).setLong(gpsAt);
+
+        ByteArrayOutputStream tiff = new ByteArrayOutputStream(512);
+        tiff.write('M');
+        tiff.write('M');
+        u16(tiff, 42);
+        u32(tiff, 8);
+        ifd0.writeTo(tiff, 8);
+        exif.writeTo(tiff, exifAt);
+        if (gps != null) gps.writeTo(tiff, gpsAt);
+
+        byte[] body = tiff.toByteArray();
+        ByteArrayOutputStream app1 = new ByteArrayOutputStream(body.length + 10);
+        app1.write(0xFF);
+        app1.write(0xE1);
+        u16(app1, 2 + 6 + body.length);
+        app1.write('E'); app1.write('x'); app1.write('i'); app1.write('f');
+        app1.write(0);
+        app1.write(0);
+        app1.write(body, 0, body.length);
+        return app1.toByteArray();
+    }
+
+    /**
+     * Wrap a JPEG sink so {@code app1} lands right after the SOI marker;
+     * every other byte passes through unchanged.
+     */
+    public static OutputStream splice(OutputStream out, byte[] app1) {
+        return new FilterOutputStream(out) {
+            private long pos = 0;
+
+            @Override public void write(int b) throws IOException {
+                out.write(b);
+                if (++pos == 2) out.write(app1);
+            }
+
+            @Override public void write(byte[] b, int off, int len) throws IOException {
+                if (pos >= 2 || pos + len < 2) {
+                    out.write(b, off, len);
+                    pos += len;
+                    return;
+                }
+                int head = (int) (2 - pos);
+                out.write(b, off, head);
+                out.write(app1);
+                out.write(b, off + head, len - head);
+                pos += len;
+            }
+        };
+    }
+
+    /**
+     * Copy a finished JPEG (a camera JPEG plane) into {@code out} with
+     * {@code app1} after the SOI marker, as {@link #splice(OutputStream, byte[])}
+     * does while encoding. An EXIF APP1 the camera already wrote right after
+     * SOI is dropped, so the file carries one EXIF segment rather than two.
+     */
+    public static void splice(ByteBuffer jpeg, byte[] app1, OutputStream out) throws IOException {
+        int p = jpeg.position();
+        int skip = 2;
+        if (jpeg.remaining() >= 12
+                && (jpeg.get(p + 2) & 0xFF) == 0xFF && (jpeg.get(p + 3) & 0xFF) == 0xE1
+                && jpeg.get(p + 6) == 'E' && jpeg.get(p + 7) == 'x'
+                && jpeg.get(p + 8) == 'i' && jpeg.get(p + 9) == 'f'
+                && jpeg.get(p + 10) == 0 && jpeg.get(p + 11) == 0) {
+            int len = ((jpeg.get(p + 4) & 0xFF) << 8) | (jpeg.get(p + 5) & 0xFF);
+            if (4 + len <= jpeg.remaining()) skip = 4 + len;
+        }
+        OutputStream s = splice(out, app1);
+        byte[] chunk = new byte[16 * 1024];
+        jpeg.get(chunk, 0, 2);
+        s.write(chunk, 0, 2);
+        jpeg.position(p + skip);
+        while (jpeg.hasRemaining()) {
+            int n = Math.min(chunk.length, jpeg.remaining());
+            jpeg.get(chunk, 0, n);
+            s.write(chunk, 0, n);
+        }
+    }
+
+    /** Degrees as degrees / minutes / seconds×1000 rationals. */
+    private static long[] dms(double deg) {
+        long d = (long) deg;
+        double m = (deg - d) * 60;
+        long mm = (long) m;
+        long s1000 = Math.round((m - mm) * 60 * 1000);
+        return new long[] { d, 1, mm, 1, s1000, 1000 };
+    }
+
+    // ── IFD encoding ──────────────────────────────────────────────────────────
+
+    private static final class Entry {
+        final int tag, type, count;
+        byte[] value;
+
+        Entry(int tag, int type, int count, byte[] value) {
+            this.tag = tag; this.type = type; this.count = count; this.value = value;
+        }
+
+        void setLong(long v) {
+            value = new byte[] { (byte) (v >> 24), (byte) (v >> 16), (byte) (v >> 8), (byte) v };
+        }
+    }
+
+    private static final class Ifd {
+        final List<Entry> entries = new ArrayList<>();
+
+        void ascii(int tag, String s) {
+            byte[] b = (s + "\0").getBytes(StandardCharsets.US_ASCII);
+            entries.add(new Entry(tag, ASCII, b.length, b));
+        }
+
+        void bytes(int tag, byte[] b) { entries.add(new Entry(tag, BYTE, b.length, b)); }
+
+        void longValue(int tag, long v) {
+            Entry e = new Entry(tag, LONG, 1, null);
+            e.setLong(v);
+            entries.add(e);
+        }
+
+        /** Pairs of numerator, denominator. */
+        void rationals(int tag, long[] nd) {
+            ByteArrayOutputStream b = new ByteArrayOutputStream(nd.length * 4);
+            for (long v : nd) u32(b, v);
+            entries.add(new Entry(tag, RATIONAL, nd.length / 2, b.toByteArray()));
+        }
+
+        /** Directory plus out-of-line values, in bytes. */
+        int size() {
+            int n = 2 + 12 * entries.size() + 4;
+            for (Entry e : entries) if (e.value.length > 4) n += e.value.length + (e.value.length & 1);
+            return n;
+        }
+
+        /** @param at offset of this IFD from the TIFF header */
+        void writeTo(ByteArrayOutputStream out, int at) {
+            int data = at + 2 + 12 * entries.size() + 4;
+            u16(out, entries.size());
+            for (Entry e : entries) {
+                u16(out, e.tag);
+                u16(out, e.type);
+                u32(out, e.count);
+                if (e.value.length <= 4) {
+                    out.write(e.value, 0, e.value.length);
+                    for (int i = e.value.length; i < 4; i++) out.write(0);
+                } else {
+                    u32(out, data);
+                    data += e.value.length + (e.value.length & 1);
+                }
+            }
+            u32(out, 0);   // no next IFD
+            for (Entry e : entries) {
+                if (e.value.length <= 4) continue;
+                out.write(e.value, 0, e.value.length);
+                if ((e.value.length & 1) != 0) out.write(0);   // word alignment
+            }
+        }
+    }
+
+    private static void u16(ByteArrayOutputStream out, int v) {
+        out.write(v >> 8);
+        out.write(v);
+    }
+
+    private static void u32(ByteArrayOutputStream out, long v) {
+        out.write((int) (v >> 24));
+        out.write((int) (v >> 16));
+        out.write((int) (v >> 8));
+        out.write((int) v);
+    }
+}
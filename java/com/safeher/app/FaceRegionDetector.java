@@ -0,0 +1,204 @@
+package com.safeher.app;
+
+/**
+ * FaceRegionDetector
+ *
+ * Cheap "is there probably a face?" test for ranking evidence frames, in
+ * the style of Viola-Jones: Haar-like rectangle features evaluated in O(1)
+ * from an integral image, arranged as an early-exit cascade and slid over
+ * the frame at several scales.
+ *
+ * The app ships no trained cascade, so the stages are the classic
+ * hand-placed frontal-face contrasts, each normalised by the window's
+ * standard deviation (so lighting does not matter):
+ *
+ *   0  window not flat                (σ ≥ MIN_SIGMA)
+ *   1  eye band darker than cheeks
+ *   2  nose bridge brighter than each eye
+ *   3  forehead brighter than the eye band
+ *   4  mouth darker than the skin above it
+ *
+ * A face is reported only where MIN_NEIGHBOURS windows agree, which is what
+ * keeps textures from firing. It is tuned for ranking (a false positive
+ * only keeps a photo at higher quality), not for identification.
+ *
+ * Works on luma decimated to about WORK_WIDTH pixels wide; buffers are
+ * allocated once per frame size. Plain Java, no Android classes; one
+ * instance per thread.
+ */
+public class FaceRegionDetector {
+
+    private static final int    WORK_WIDTH     = 240;
+    private static final int    MIN_WINDOW     = 20;    // work pixels
+    private static final float  SCALE_STEP     = 1.25f;
+    private static final int    MIN_SIGMA      = 6;
+    private static final int    MIN_NEIGHBOURS = 2;
+    private static final int    MAX_HITS       = 256;
+
+    // Stage thresholds, in units of window σ
+    private static final float  T_EYES_CHEEKS  = 0.35f;
+    private static final float  T_BRIDGE       = 0.20f;
+    private static final float  T_FOREHEAD     = 0.15f;
+    private static final float  T_MOUTH        = 0.10f;
+
+    private int   srcW = -1, srcH = -1;
+    private int   factor, dw, dh;
+    private int[]  ii;     // integral of luma, (dw+1)×(dh+1)
+    private long[] ii2;    // integral of luma²
+    private int   stride = 2;   // window step at the base scale, work pixels
+
+    private final int[] hitX = new int[MAX_HITS], hitY = new int[MAX_HITS], hitS = new int[MAX_HITS];
+    private int hits;
+
+    // Best face of the last detect(), in source pixels
+    private int faceX, faceY, faceSize;
+
+    /** Result of the last detect(): face square in source pixels, size 0 if none. */
+    public int getFaceX()    { return faceX; }
+
+    public int getFaceY()    { return faceY; }
+
+    public int getFaceSize() { return faceSize; }
+
+    /** Trade recall for speed: double the window step (up to 8). */
+    public boolean coarser() {
+        if (stride >= 8) return false;
+        stride *= 2;
+        return true;
+    }
+
+    public int getStride() { return stride; }
+
+    /**
+     * Look for a face in the luma plane of an NV21 frame.
+     *
+     * @return true if a face-like region was found
+     */
+    public boolean detect(byte[] y, int w, int h) {
+        prepare(w, h);
+        buildIntegral(y, w);
+
+        hits = 0;
+        for (int s = MIN_WINDOW; s <= Math.min(dw, dh); s = Math.round(s * SCALE_STEP)) {
+            int step = Math.max(1, stride * s / MIN_WINDOW);
+            for (int wy = 0; wy + s <= dh; wy += step) {
+                for (int wx = 0; wx + s <= dw; wx += step) {
+                    if (hits < MAX_HITS && isFace(wx, wy, s)) {
+                        hitX[hits] = wx;
+                        hitY[hits] = wy;
+                        hitS[hits] = s;
+                        hits++;
+                    }
+                }
+            }
+        }
+        return group();
+    }
+
+    // ── Cascade ───────────────────────────────────────────────────────────────
+
+    private boolean isFace(int x, int y, int s) {
+        int area = s * s;
+        long sum = rect(ii, x, y, s, s);
+        long sq  = rect2(x, y, s, s);
+        long varN2 = sq * area - sum * sum;            // variance × area²
+        if (varN2 < (long) MIN_SIGMA * MIN_SIGMA * area * area) return false;
+        float sigma = (float) Math.sqrt((double) varN2) / area;
+
+        // Mean luma of a sub-rectangle given in 1/20ths of the window
+        float eyes    = mean(x, y, s, 2, 4, 18, 9);
+        float cheeks  = mean(x, y, s, 2, 9, 18, 13);
+        if (cheeks - eyes < T_EYES_CHEEKS * sigma) return false;
+
+        float left    = mean(x, y, s, 3, 4, 8, 9);
+        float right   = mean(x, y, s, 12, 4, 17, 9);
+        float bridge  = mean(x, y, s, 8, 4, 12, 9);
+        if (bridge - left < T_BRIDGE * sigma || bridge - right < T_BRIDGE * sigma) return false;
+
+        float forehead = mean(x, y, s, 3, 0, 17, 3);
+        if (forehead - eyes < T_FOREHEAD * sigma) return false;
+
+        float mouth   = mean(x, y, s, 6, 14, 14, 17);
+        float upper   = mean(x, y, s, 6, 11, 14, 13);
+        return upper - mouth >= T_MOUTH * sigma;
+    }
+
+    /** Mean over [x0, x1) × [y0, y1), coordinates in twentieths of the window. */
+    private float mean(int x, int y, int s, int x0, int y0, int x1, int y1) {
+        int ax = x + s * x0 / 20, ay = y + s * y0 / 20;
+        int bx = x + s * x1 / 20, by = y + s * y1 / 20;
+        int area = Math.max(1, (bx - ax) * (by - ay));
+        return (float) rect(ii, ax, ay, bx - ax, by - ay) / area;
+    }
+
+    /** Keep the hit with the most agreeing neighbours, if there are enough. */
+    private boolean group() {
+        int best = -1, bestN = 0;
+        for (int i = 0; i < hits; i++) {
+            int n = 0;
+            int cx = hitX[i] + hitS[i] / 2, cy = hitY[i] + hitS[i] / 2;
+            for (int j = 0; j < hits; j++) {
+                if (j == i) continue;
+                int tol = Math.max(hitS[i], hitS[j]) / 3;
+                if (Math.abs(hitX[j] + hitS[j] / 2 - cx) <= tol
+                        && Math.abs(hitY[j] + hitS[j] / 2 - cy) <= tol
+                        && hitS[j] * 2 >= hitS[i] && hitS[i] * 2 >= hitS[j]) {
+                    n++;
+                }
+            }
+            if (n > bestN) { bestN = n; best = i; }
+        }
+        if (best < 0 || bestN < MIN_NEIGHBOURS) {
+            faceSize = 0;
+            return false;
+        }
+        faceX    = hitX[best] * factor;
+        faceY    = hitY[best] * factor;
+        faceSize = hitS[best] * factor;
+        return true;
+    }
+
+    // ── Integral image ────────────────────────────────────────────────────────
+
+    private void prepare(int w, int h) {
+        if (w == srcW && h == srcH) return;
+        srcW   = w;
+        srcH   = h;
+        factor = Math.max(1, w / WORK_WIDTH);
+        dw     = w / factor;
+        dh     = h / factor;
+        ii     = new int[(dw + 1) * (dh + 1)];
+        ii2    = new long[(dw + 1) * (dh + 1)];
+    }
+
+    /** Box-decimate by {@code factor} and integrate in one pass. */
+    private void buildIntegral(byte[] y, int w) {
+        int area = factor * factor, W1 = dw + 1;
+        for (int r = 0; r < dh; r++) {
+            int rowSum = 0;
+            long rowSq = 0;
+            for (int c = 0; c < dw; c++) {
+                int sum = 0;
+                for (int yy = 0; yy < factor; yy++) {
+                    int a = (r * factor + yy) * w + c * factor;
+                    for (int xx = 0; xx < factor; xx++) sum += y[a + xx] & 0xFF;
+                }
+                int v = sum / area;
+                rowSum += v;
+                rowSq  += v * v;
+                ii[(r + 1) * W1 + c + 1]  = ii[r * W1 + c + 1]  + rowSum;
+                ii2[(r + 1) * W1 + c + 1] = ii2[r * W1 + c + 1] + rowSq;
+            }
+        }
+    }
+
+    private long rect(int[] t, int x, int y, int w, int h) {
+        int W1 = dw + 1;
+        return (long) t[(y + h) * W1 + x + w] - t[y * W1 + x + w] - t[(y + h) * W1 + x] + t[y * W1 + x];
+    }
+
+    private long rect2(int x, int y, int w, int h) {
+        int W1 = dw + 1;
+        return ii2[(y + h) * W1 + x + w] - ii2[y * W1 + x + w] - ii2[(y + h) * W1 + x] + ii2[y * W1 + x];
+    }
+}
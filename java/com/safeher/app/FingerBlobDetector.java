@@ -0,0 +1,190 @@
+package com.safeher.app;
+
+import java.nio.ByteBuffer;
+
+/**
+ * FingerBlobDetector
+ *
+ * "Point ONE finger" recognition that stays cheap: the frame is sampled on
+ * the analyzer's step grid (80×60 cells for 640×480 at step 8), each cell is
+ * binarised against the luma at BRIGHT_PERCENTILE of the frame's histogram
+ * (the same exposure-proof rank the luma detector uses for its zone), and
+ * 4-connected bright cells are
+ * grouped with union-find over primitive int arrays. For every blob the
+ * area, centroid and second-order moments give position, orientation and
+ * elongation (ratio of principal axes).
+ *
+ * Present only when exactly one blob is finger-like: tall and narrow,
+ * roughly vertical once the camera rotation is applied, and centred in the
+ * same upper zone the luma detector watches. A whole palm or a lamp is a
+ * round blob and is rejected.
+ *
+ * All scratch arrays are reused; they are only reallocated when the grid
+ * size changes.
+ */
+public class FingerBlobDetector implements PresenceDetector {
+
+    // Cell is "bright" when it outranks this fraction of the frame's samples
+    private static final float BRIGHT_PERCENTILE = LumaPresenceDetector.PRESENCE_PERCENTILE;
+    private static final int   MIN_CELL_LUMA  = LumaPresenceDetector.MIN_ZONE_LUMA;
+
+    // Blob acceptance
+    private static final int   MIN_AREA       = 12;    // cells
+    private static final int   MAX_AREA_PCT   = 20;    // % of grid — bigger is a palm/wall
+    private static final float MIN_ELONGATION = 2.0f;  // major / minor axis
+    private static final float MAX_TILT_DEG   = 30f;   // away from vertical
+
+    private int   gw, gh;
+    private int[] parent = new int[0];
+    private int[] cnt    = new int[0];
+    private int[] cellLuma = new int[0];
+    private long[] sx, sy, sxx, syy, sxy, sl;
+    private int[] roots  = new int[0];
+
+    private int   blobCount;
+    private int   fingerCount;
+    private float zoneAvg;
+    private float elongation;
+    private float orientationDeg;
+    private float centroidX, centroidY;
+
+    @Override
+    public boolean detect(GestureFrame f) {
+        int step = f.step;
+        int W = f.width, H = f.height;
+        int cols = (W + step - 1) / step, rows = (H + step - 1) / step;
+        ensureCapacity(cols, rows);
+
+        ByteBuffer yBuf = f.y;
+        int limit = yBuf.limit();
+        if (f.histCount <= 0) { blobCount = fingerCount = 0; zoneAvg = 0f; return false; }
+        float threshold = Math.max(MIN_CELL_LUMA, f.lumaAtPercentile(BRIGHT_PERCENTILE));
+
+        // ── Pass 1: binarise + union with left / upper neighbours ─────────
+        for (int gy = 0; gy < rows; gy++) {
+            int rowOff = gy * step * f.rowStride;
+            for (int gx = 0; gx < cols; gx++) {
+                int c   = gy * cols + gx;
+                int idx = rowOff + gx * step * f.pixStride;
+                int l   = idx < limit ? yBuf.get(idx) & 0xFF : 0;
+                if (l <= threshold) { parent[c] = -1; continue; }
+                parent[c] = c;
+                cnt[c]    = 0;   // roots are always bright cells, so this clears pass 2
+                cellLuma[c] = l;
+                if (gx > 0    && parent[c - 1]    >= 0) union(c, c - 1);
+                if (gy > 0    && parent[c - cols] >= 0) union(c, c - cols);
+            }
+        }
+
+        // ── Pass 2: accumulate moments per root ───────────────────────────
+        int nRoots = 0;
+        int n = cols * rows;
+        for (int c = 0; c < n; c++) {
+            if (parent[c] < 0) continue;
+            int r = find(c);
+            if (cnt[r] == 0) {
+                roots[nRoots++] = r;
+                sx[r] = sy[r] = sxx[r] = syy[r] = sxy[r] = sl[r] = 0;
+            }
+            int x = c % cols, y = c / cols;
+            cnt[r]++;
+            sx[r]  += x;      sy[r]  += y;
+            sxx[r] += x * x;  syy[r] += y * y;  sxy[r] += x * y;
+            sl[r]  += cellLuma[c];
+        }
+
+        // ── Classify blobs ────────────────────────────────────────────────
+        int maxArea = n * MAX_AREA_PCT / 100;
+        int rot = ((f.rotationDegrees % 360) + 360) % 360;
+
+        blobCount   = nRoots;
+        fingerCount = 0;
+        for (int i = 0; i < nRoots; i++) {
+            int r = roots[i];
+            int a = cnt[r];
+            if (a < MIN_AREA || a > maxArea) continue;
+
+            double mx = (double) sx[r] / a, my = (double) sy[r] / a;
+            double mu20 = (double) sxx[r] / a - mx * mx;
+            double mu02 = (double) syy[r] / a - my * my;
+            double mu11 = (double) sxy[r] / a - mx * my;
+            double common = Math.sqrt((mu20 - mu02) * (mu20 - mu02) + 4 * mu11 * mu11);
+            double major  = (mu20 + mu02 + common) / 2;
+            double minor  = Math.max(1e-3, (mu20 + mu02 - common) / 2);
+            float  elong  = (float) Math.sqrt(major / minor);
+
+            // Major-axis angle in buffer coords, then rotated to upright
+            double theta  = Math.toDegrees(0.5 * Math.atan2(2 * mu11, mu20 - mu02));
+            double upright = ((theta + rot) % 180 + 180) % 180;
+            boolean vertical = Math.abs(upright - 90) <= MAX_TILT_DEG;
+
+            // Centroid in upright cell coords
+            double ux = mx, uy = my;
+            int uCols = cols, uRows = rows;
+            switch (rot) {
+                case 90:  ux = rows - 1 - my; uy = mx; uCols = rows; uRows = cols; break;
+                case 180: ux = cols - 1 - mx; uy = rows - 1 - my; break;
+                case 270: ux = my; uy = cols - 1 - mx; uCols = rows; uRows = cols; break;
+            }
+            boolean inZone = ux >= uCols / 4 && ux < 3 * uCols / 4 && uy < uRows * 0.45f;
+
+            if (elong >= MIN_ELONGATION && vertical && inZone) {
+                fingerCount++;
+                elongation     = elong;
+                orientationDeg = (float) upright;
+                centroidX      = (float) (ux / uCols);
+                centroidY      = (float) (uy / uRows);
+                zoneAvg        = (float) sl[r] / a;
+            }
+        }
+        if (fingerCount == 0) zoneAvg = 0f;
+        return fingerCount == 1;
+    }
+
+    // ── Union-find (path halving, union by index) ─────────────────────────────
+
+    private int find(int c) {
+        while (parent[c] != c) {
+            parent[c] = parent[parent[c]];
+            c = parent[c];
+        }
+        return c;
+    }
+
+    private void union(int a, int b) {
+        int ra = find(a), rb = find(b);
+        if (ra == rb) return;
+        if (ra < rb) parent[rb] = ra; else parent[ra] = rb;
+    }
+
+    private void ensureCapacity(int cols, int rows) {
+        if (cols == gw && rows == gh) return;
+        gw = cols; gh = rows;
+        int n = cols * rows;
+        parent = new int[n];
+        cnt    = new int[n];
+        cellLuma = new int[n];
+        roots  = new int[n];
+        sx  = new long[n]; sy  = new long[n];
+        sxx = new long[n]; syy = new long[n]; sxy = new long[n];
+        sl  = new long[n];
+    }
+
+    // ── Debug readouts (last frame) ───────────────────────────────────────────
+
+    @Override
+    public float getZoneAvg()          { return zoneAvg; }
+
+    public int   getBlobCount()        { return blobCount; }
+
+    public int   getFingerCount()      { return fingerCount; }
+
+    public float getElongation()       { return elongation; }
+
+    public float getOrientationDeg()   { return orientationDeg; }
+
+    /** Finger centroid as a 0..1 fraction of the upright frame width/height. */
+    public float getCentroidX()        { return centroidX; }
+
+    public float getCentroidY()        { return centroidY; }
+}
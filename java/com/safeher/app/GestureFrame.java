@@ -0,0 +1,95 @@
+package com.safeher.app;
+
+import java.nio.ByteBuffer;
+
+/**
+ * GestureFrame
+ *
+ * Mutable view over one YUV_420_888 frame handed to a PresenceDetector.
+ * A single instance is reused for every frame on the analyzer thread, so
+ * detectors must not hold on to the buffers after detect() returns.
+ *
+ * Chroma planes are optional (null when the source only has luma, e.g. a
+ * recorded Y-plane sequence); detectors that need them fall back to luma.
+ */
+public class GestureFrame {
+
+    public ByteBuffer y;
+    public int        width, height;
+    public int        rowStride, pixStride;
+
+    public ByteBuffer u, v;
+    public int        uvRowStride, uvPixStride;
+
+    /** Sampling step (pixels) chosen by the analyzer for this frame. */
+    public int        step;
+
+    /** Full-frame average luma, filled in by the analyzer's first pass. */
+    public float      fullAvg;
+
+    /**
+     * Luma histogram of the analyzer's full-pass samples (256 bins, reused
+     * every frame) and its sample count; 0 when the analyzer has not filled it.
+     */
+    public final int[] lumaHist = new int[256];
+    public int        histCount;
+
+    /** Clockwise rotation that makes the buffer upright (ImageInfo rotation). */
+    public int        rotationDegrees;
+
+    public GestureFrame setLuma(ByteBuffer y, int width, int height, int rowStride, int pixStride) {
+        this.y         = y;
+        this.width     = width;
+        this.height    = height;
+        this.rowStride = rowStride;
+        this.pixStride = pixStride;
+        return this;
+    }
+
+    public GestureFrame setChroma(ByteBuffer u, ByteBuffer v, int uvRowStride, int uvPixStride) {
+        this.u           = u;
+        this.v           = v;
+        this.uvRowStride = uvRowStride;
+        this.uvPixStride = uvPixStride;
+        return this;
+    }
+
+    public GestureFrame clearChroma() {
+        u = null;
+        v = null;
+        return this;
+    }
+
+    /**
+     * Fraction (0..1) of full-pass samples darker than {@code luma}, with
+     * linear interpolation inside the bin. Exposure and gain changes move
+     * every pixel together, so this rank stays put when raw averages jump.
+     */
+    public float percentileOf(float luma) {
+        if (histCount <= 0) return 0f;
+        if (luma <= 0f)   return 0f;
+        if (luma >= 256f) return 1f;
+        int bin = (int) luma;
+        int below = 0;
+        for (int b = 0; b < bin; b++) below += lumaHist[b];
+        return (below + lumaHist[bin] * (luma - bin)) / histCount;
+    }
+
+    /**
+     * Inverse of percentileOf(): the luma below which {@code p} of the
+     * full-pass samples fall, interpolated inside the bin; 0 without a histogram.
+     */
+    public float lumaAtPercentile(float p) {
+        if (histCount <= 0) return 0f;
+        float target = p * histCount;
+        int below = 0;
+        for (int b = 0; b < 256; b++) {
+            int n = lumaHist[b];
+            if (n > 0 && below + n >= target) return b + (target - below) / n;
+            below += n;
+        }
+        return 255f;
+    }
+
+    public boolean hasChroma() { return u != null && v != null; }
+}
@@ -0,0 +1,188 @@
+package com.safeher.app;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * GestureFrameAnalyzer
+ *
+ * Pure-Java frame pipeline shared by HandGestureService, HandGestureActivity
+ * and the JVM replay harness. Works on raw planes (row/pixel stride aware)
+ * so it can be fed from a CameraX ImageProxy or from a recorded sequence.
+ *
+ * FULL PASS: frame average luma, a 256-bin luma histogram and a coarse tile
+ *   grid, sampled every 2·STEP into arrays reused across frames.
+ * MOTION GATE: if no tile moved beyond MOTION_NOISE since the last analysed
+ *   frame, the detector is skipped and the previous result is carried forward.
+ * PRESENCE: delegated to a pluggable PresenceDetector (luma by default).
+ *
+ * Not thread-safe — call from a single analyzer thread.
+ */
+public class GestureFrameAnalyzer {
+
+    // Kept here for callers that tune the default luma detector
+    public static final float PRESENCE_PERCENTILE = LumaPresenceDetector.PRESENCE_PERCENTILE;
+    public static final int   MIN_ZONE_LUMA   = LumaPresenceDetector.MIN_ZONE_LUMA;
+
+    // Sample step — every N pixels (performance)
+    public static final int   STEP            = 8;
+
+    // Motion gate tile grid and noise margin (luma levels)
+    private static final int  TILE_COLS       = 8;
+    private static final int  TILE_ROWS       = 6;
+    private static final int  MOTION_NOISE    = 6;
+
+    // Force a full analysis at least this often, even on a still scene
+    private static final int  MAX_SKIP_STREAK = 30;
+
+    private volatile int step;
+    private volatile PresenceDetector detector;
+    private boolean    motionGate = true;
+    private volatile boolean resetGate = false;
+
+    private final GestureFrame frame = new GestureFrame();
+
+    // Previous analysed frame luma snapshot (tile averages)
+    private int[]       lastLuma    = null;
+    private final int[] tileSum     = new int[TILE_COLS * TILE_ROWS];
+    private final int[] tileCnt     = new int[TILE_COLS * TILE_ROWS];
+
+    private boolean lastPresent = false;
+    private boolean lastSkipped = false;
+    private int     skipStreak  = 0;
+    private float   fullAvg     = 0f;
+
+    private volatile int analysedFrames = 0;
+    private volatile int skippedFrames  = 0;
+
+    public GestureFrameAnalyzer() {
+        this(new LumaPresenceDetector(), STEP);
+    }
+
+    public GestureFrameAnalyzer(float presencePercentile, int minZoneLuma, int step) {
+        this(new LumaPresenceDetector(presencePercentile, minZoneLuma), step);
+    }
+
+    public GestureFrameAnalyzer(PresenceDetector detector, int step) {
+        this.detector = detector;
+        this.step     = Math.max(1, step);
+    }
+
+    /**
+     * Swap the presence detector. Safe to call from any thread; the next
+     * frame is always fully analysed by the new detector.
+     */
+    public void setDetector(PresenceDetector detector) {
+        this.detector  = detector;
+        this.resetGate = true;
+    }
+
+    public PresenceDetector getDetector() { return detector; }
+
+    /** Change the sampling step (e.g. when the governor lowers resolution). */
+    public void setStep(int step) { this.step = Math.max(1, step); }
+
+    /** Camera rotation for the next frames; only shape-aware detectors use it. */
+    public void setRotationDegrees(int degrees) { frame.rotationDegrees = degrees; }
+
+    /** Disable the motion gate (benchmarks measure the detector on every frame). */
+    public void setMotionGate(boolean enabled) { this.motionGate = enabled; }
+
+    /** Analyse a luma-only frame. */
+    public boolean analyse(ByteBuffer yBuf, int W, int H, int rowStride, int pixStride) {
+        frame.setLuma(yBuf, W, H, rowStride, pixStride).clearChroma();
+        return analyse(frame);
+    }
+
+    /** Analyse a full YUV_420_888 frame; chroma is only read by detectors that need it. */
+    public boolean analyse(ByteBuffer yBuf, int W, int H, int rowStride, int pixStride,
+                           ByteBuffer uBuf, ByteBuffer vBuf, int uvRowStride, int uvPixStride) {
+        frame.setLuma(yBuf, W, H, rowStride, pixStride)
+             .setChroma(uBuf, vBuf, uvRowStride, uvPixStride);
+        return analyse(frame);
+    }
+
+    /**
+     * Analyse one frame.
+     *
+     * @return true if the gesture zone looks occupied in this frame
+     */
+    public boolean analyse(GestureFrame f) {
+        ByteBuffer yBuf = f.y;
+        int W = f.width, H = f.height;
+        int rowStride = f.rowStride, pixStride = f.pixStride;
+        int limit = yBuf.limit();
+        int step = this.step;
+
+        // ── Sample full frame average luma + coarse tile grid ─────────────
+        Arrays.fill(tileSum, 0);
+        Arrays.fill(tileCnt, 0);
+        int[] hist = f.lumaHist;
+        Arrays.fill(hist, 0);
+        long fullSum = 0; int fullCnt = 0;
+        for (int y = 0; y < H; y += step * 2) {
+            int rowBase = (y * TILE_ROWS / H) * TILE_COLS;
+            for (int x = 0; x < W; x += step * 2) {
+                int idx = y * rowStride + x * pixStride;
+                if (idx >= 0 && idx < limit) {
+                    int l = yBuf.get(idx) & 0xFF;
+                    fullSum += l;
+                    fullCnt++;
+                    hist[l]++;
+                    int t = rowBase + x * TILE_COLS / W;
+                    tileSum[t] += l;
+                    tileCnt[t]++;
+                }
+            }
+        }
+        fullAvg = fullCnt > 0 ? (float) fullSum / fullCnt : 128f;
+        f.histCount = fullCnt;
+
+        // ── Motion gate: compare tile grid against last analysed frame ────
+        if (resetGate) { resetGate = false; lastLuma = null; }
+        int maxDiff = Integer.MAX_VALUE;
+        int[] prev = lastLuma;
+        if (motionGate && prev != null && skipStreak < MAX_SKIP_STREAK) {
+            maxDiff = 0;
+            for (int t = 0; t < tileSum.length; t++) {
+                int avg = tileCnt[t] > 0 ? tileSum[t] / tileCnt[t] : 0;
+                int d = Math.abs(avg - prev[t]);
+                if (d > maxDiff) maxDiff = d;
+            }
+        }
+        if (maxDiff <= MOTION_NOISE) {
+            skipStreak++;
+            skippedFrames++;
+            lastSkipped = true;
+            return lastPresent;
+        }
+        if (prev == null) prev = new int[tileSum.length];
+        for (int t = 0; t < tileSum.length; t++)
+            prev[t] = tileCnt[t] > 0 ? tileSum[t] / tileCnt[t] : 0;
+        lastLuma    = prev;
+        skipStreak  = 0;
+        lastSkipped = false;
+        analysedFrames++;
+
+        // ── Presence (pluggable detector) ─────────────────────────────────
+        f.step    = step;
+        f.fullAvg = fullAvg;
+        lastPresent = detector.detect(f);
+        return lastPresent;
+    }
+
+    public float getFullAvg()      { return fullAvg; }
+
+    public float getZoneAvg()      { return detector.getZoneAvg(); }
+
+    /** Percentile rank (0..1) of the last zone average within the last frame's luma. */
+    public float getZonePercentile() { return frame.percentileOf(detector.getZoneAvg()); }
+
+    public boolean wasSkipped()    { return lastSkipped; }
+
+    /** Fraction of frames (0..1) whose presence check was skipped by the motion gate. */
+    public float getSkipRatio() {
+        int total = analysedFrames + skippedFrames;
+        return total > 0 ? (float) skippedFrames / total : 0f;
+    }
+}
@@ -0,0 +1,145 @@
+package com.safeher.app;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * GestureFrameRecorder
+ *
+ * Writes a compact raw Y-plane sequence for offline tuning of the gesture
+ * detector. Each frame is decimated by DECIMATE in both directions (so a
+ * 640×480 frame becomes 160×120) and stored unpacked in a gzip stream.
+ *
+ * File layout (big-endian, inside gzip):
+ *   int   MAGIC
+ *   byte  VERSION
+ *   byte  label      — LABEL_GESTURE / LABEL_NONE
+ *   byte  decimation
+ *   then per frame: long timestampMs, short width, short height, width*height bytes
+ *
+ * Sequences are read back by {@link Reader}, e.g. from GestureReplayHarness.
+ *
+ * Not thread-safe: open, write and close from one thread (the analyzer
+ * executor in HandGestureActivity).
+ */
+public class GestureFrameRecorder implements Closeable {
+
+    public static final int  MAGIC         = 0x53485953; // "SHYS"
+    public static final byte VERSION       = 1;
+    public static final int  DECIMATE      = 4;
+    public static final String EXTENSION   = ".yseq";
+
+    /** The user performed the gesture somewhere in this sequence. */
+    public static final byte LABEL_GESTURE = 1;
+    /** The sequence must never trigger (background, lights, walking…). */
+    public static final byte LABEL_NONE    = 0;
+
+    private final DataOutputStream out;
+    private final File             file;
+    private byte[]                 scratch = new byte[0];
+    private int                    frames  = 0;
+
+    public GestureFrameRecorder(File file, byte label) throws IOException {
+        this.file = file;
+        out = new DataOutputStream(new BufferedOutputStream(
+            new GZIPOutputStream(new FileOutputStream(file)), 64 * 1024));
+        out.writeInt(MAGIC);
+        out.writeByte(VERSION);
+        out.writeByte(label);
+        out.writeByte(DECIMATE);
+    }
+
+    /** Append one decimated Y plane. Call from the analyzer thread. */
+    public void write(ByteBuffer yBuf, int W, int H, int rowStride, int pixStride,
+                      long timestampMs) throws IOException {
+        int w = W / DECIMATE, h = H / DECIMATE;
+        if (scratch.length < w * h) scratch = new byte[w * h];
+        int limit = yBuf.limit();
+        int o = 0;
+        for (int y = 0; y < h; y++) {
+            int row = y * DECIMATE * rowStride;
+            for (int x = 0; x < w; x++) {
+                int idx = row + x * DECIMATE * pixStride;
+                scratch[o++] = idx < limit ? yBuf.get(idx) : 0;
+            }
+        }
+        out.writeLong(timestampMs);
+        out.writeShort(w);
+        out.writeShort(h);
+        out.write(scratch, 0, w * h);
+        frames++;
+    }
+
+    public int getFrameCount() { return frames; }
+
+    public File getFile()      { return file; }
+
+    @Override
+    public void close() throws IOException {
+        out.close();
+    }
+
+    // ── Reading ───────────────────────────────────────────────────────────────
+
+    /** Sequential reader; reuses one frame buffer for the whole sequence. */
+    public static class Reader implements Closeable {
+
+        private final DataInputStream in;
+        private final byte            label;
+        private final int             decimation;
+
+        private ByteBuffer frame = ByteBuffer.allocate(0);
+        private long       timestampMs;
+        private int        width, height;
+
+        public Reader(File file) throws IOException {
+            in = new DataInputStream(new BufferedInputStream(
+                new GZIPInputStream(new FileInputStream(file)), 64 * 1024));
+            if (in.readInt() != MAGIC) throw new IOException("Not a gesture sequence: " + file);
+            byte version = in.readByte();
+            if (version != VERSION) throw new IOException("Unsupported version " + version);
+            label      = in.readByte();
+            decimation = in.readByte();
+        }
+
+        /** @return false at end of sequence */
+        public boolean next() throws IOException {
+            try {
+                timestampMs = in.readLong();
+            } catch (EOFException e) {
+                return false;
+            }
+            width  = in.readUnsignedShort();
+            height = in.readUnsignedShort();
+            int n = width * height;
+            if (frame.capacity() < n) frame = ByteBuffer.allocate(n);
+            frame.clear();
+            in.readFully(frame.array(), 0, n);
+            frame.limit(n);
+            return true;
+        }
+
+        public ByteBuffer frame()      { return frame; }
+        public long timestampMs()      { return timestampMs; }
+        public int  width()            { return width; }
+        public int  height()           { return height; }
+        public byte label()            { return label; }
+        public int  decimation()       { return decimation; }
+
+        @Override
+        public void close() throws IOException {
+            in.close();
+        }
+    }
+}
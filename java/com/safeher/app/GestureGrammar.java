@@ -0,0 +1,119 @@
+package com.safeher.app;
+
+/**
+ * GestureGrammar
+ *
+ * Turns the debounced presence timeline into commands:
+ *
+ *   hold for HOLD_MS          → SOS      (handled by GestureHoldTracker)
+ *   two quick covers          → CANCEL   (stop the alarm / evidence)
+ *   three quick covers        → EVIDENCE (silent camera evidence, no alarm)
+ *
+ * Input is only the confirmed on/off edges GestureHoldTracker already
+ * reports (HOLD_STARTED / HOLD_RESET), kept in a small ring of timestamps,
+ * so steady frames cost nothing. A burst of covers is evaluated once the
+ * hand has stayed away for getQuietMs(); the caller schedules that check.
+ *
+ * FRAME RATE: edges arrive only after the tracker's confirm streak builds up
+ * or decays, so each edge lags the hand by a few analysed frames. At the
+ * governor's slower tiers (125–250 ms per frame) that lag alone is longer
+ * than a human quick cover, so the pulse and gap limits are the human
+ * timings plus confirmFrames × the current frame interval; the caller
+ * passes the interval on every tier change.
+ *
+ * Not thread-safe — feed from a single thread.
+ */
+public class GestureGrammar {
+
+    public static final int COMMAND_NONE     = 0;
+    public static final int COMMAND_CANCEL   = 1;
+    public static final int COMMAND_EVIDENCE = 2;
+
+    // A "quick cover" is confirmed presence no longer than this, before
+    // the frame-latency allowance is added
+    public static final long MAX_PULSE_MS = 900;
+
+    // Max time the hand may be away between covers of one burst (ditto)
+    public static final long MAX_GAP_MS   = 900;
+
+    // Interval at full camera rate, used until the caller sets one
+    public static final long CAMERA_FRAME_MS = 33;
+
+    private final int confirmFrames;
+    private long maxPulseMs;
+    private long maxGapMs;
+    private long quietMs;
+
+    // Edge timestamps, alternating on/off; even slots are "on" edges
+    private static final int RING = 8;
+    private final long[] edges = new long[RING];
+    private int count = 0;
+
+    /** @param confirmFrames the tracker's confirm streak, in analysed frames */
+    public GestureGrammar(int confirmFrames) {
+        this.confirmFrames = confirmFrames;
+        setFrameIntervalMs(CAMERA_FRAME_MS);
+    }
+
+    /** Rescale the limits for a new analysis interval (ms between analysed frames). */
+    public void setFrameIntervalMs(long intervalMs) {
+        long lag   = confirmFrames * Math.max(intervalMs, CAMERA_FRAME_MS);
+        maxPulseMs = MAX_PULSE_MS + lag;
+        maxGapMs   = MAX_GAP_MS + lag;
+        // Burst is complete after this long without a new cover
+        quietMs    = maxGapMs + 100;
+    }
+
+    /** Delay after a HOLD_RESET edge before onQuiet() should run. */
+    public long getQuietMs() { return quietMs; }
+
+    /**
+     * Feed one confirmed presence edge.
+     *
+     * @param on          true when presence was confirmed, false when lost
+     * @param timestampMs edge time (elapsedRealtime base)
+     */
+    public void onEdge(boolean on, long timestampMs) {
+        // Keep strict on/off alternation; a stray duplicate restarts the burst
+        boolean expectOn = (count & 1) == 0;
+        if (on != expectOn) {
+            count = 0;
+            if (!on) return;
+        }
+        if (count == RING) {
+            // Longer than any command: drop the oldest pulse
+            System.arraycopy(edges, 2, edges, 0, RING - 2);
+            count = RING - 2;
+        }
+        edges[count++] = timestampMs;
+    }
+
+    /**
+     * Evaluate the burst once the hand has been away for getQuietMs().
+     * Clears the ring either way.
+     *
+     * @return one of the COMMAND_* constants
+     */
+    public int onQuiet(long nowMs) {
+        int n = count;
+        count = 0;
+        // Still covered, or not quiet long enough yet
+        if (n == 0 || (n & 1) == 1) return COMMAND_NONE;
+        if (nowMs - edges[n - 1] < quietMs) { count = n; return COMMAND_NONE; }
+
+        int pulses = 0;
+        for (int i = n - 2; i >= 0; i -= 2) {
+            long on = edges[i], off = edges[i + 1];
+            if (off - on > maxPulseMs) break;
+            if (i + 2 < n && edges[i + 2] - off > maxGapMs) break;
+            pulses++;
+        }
+        // Only a burst that starts cleanly counts
+        if (pulses * 2 != n) return COMMAND_NONE;
+        if (pulses == 2) return COMMAND_CANCEL;
+        if (pulses == 3) return COMMAND_EVIDENCE;
+        return COMMAND_NONE;
+    }
+
+    public void reset() { count = 0; }
+}
@@ -0,0 +1,116 @@
+package com.safeher.app;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * GestureHoldTracker
+ *
+ * Confirm → hold → trigger state machine for the finger gesture.
+ * Fed once per analysed frame from the camera analyzer thread; it only
+ * reports an event when something the user can see actually changes
+ * (hold started, hold lost, next progress step, SOS trigger), so the
+ * caller posts to the main thread a handful of times per gesture instead
+ * of on every frame.
+ *
+ * State is kept in atomics so the UI thread can read progress/trigger
+ * without locking against the analyzer.
+ */
+public class GestureHoldTracker {
+
+    public static final int EVENT_NONE         = 0;
+    public static final int EVENT_HOLD_STARTED = 1;
+    public static final int EVENT_HOLD_RESET   = 2;
+    public static final int EVENT_PROGRESS     = 3;
+    public static final int EVENT_TRIGGER      = 4;
+
+    // Progress is reported in steps of this many percent
+    private static final int PROGRESS_STEP = 10;
+
+    private final int  confirmFrames;
+    private final long holdMs;
+
+    private final AtomicInteger confirmStreak = new AtomicInteger(0);
+    private final AtomicBoolean gestureHeld   = new AtomicBoolean(false);
+    private final AtomicLong    heldSince     = new AtomicLong(0);
+    private final AtomicInteger progress      = new AtomicInteger(0);
+    private final AtomicBoolean triggered     = new AtomicBoolean(false);
+
+    public GestureHoldTracker(int confirmFrames, long holdMs) {
+        this.confirmFrames = confirmFrames;
+        this.holdMs        = holdMs;
+    }
+
+    /**
+     * Advance the state machine by one frame.
+     *
+     * @param present whether the detector saw the gesture in this frame
+     * @param nowMs   monotonic frame time in milliseconds
+     * @return one of the EVENT_* constants
+     */
+    public int onFrame(boolean present, long nowMs) {
+        if (triggered.get()) return EVENT_NONE;
+
+        int streak = present
+            ? Math.min(confirmStreak.get() + 1, confirmFrames + 10)
+            : Math.max(0, confirmStreak.get() - 2); // decay faster than growth
+        confirmStreak.set(streak);
+
+        boolean confirmed = streak >= confirmFrames;
+
+        if (confirmed && !gestureHeld.get()) {
+            // Gesture just confirmed — start hold timer
+            gestureHeld.set(true);
+            heldSince.set(nowMs);
+            progress.set(0);
+            return EVENT_HOLD_STARTED;
+        } else if (!confirmed && gestureHeld.get()) {
+            // Gesture lost — reset
+            gestureHeld.set(false);
+            progress.set(0);
+            return EVENT_HOLD_RESET;
+        }
+
+        if (!gestureHeld.get()) return EVENT_NONE;
+
+        long elapsed = nowMs - heldSince.get();
+        if (elapsed >= holdMs) {
+            progress.set(100);
+            return triggered.compareAndSet(false, true) ? EVENT_TRIGGER : EVENT_NONE;
+        }
+
+        int p = (int) (elapsed * 100L / holdMs);
+        if (p / PROGRESS_STEP != progress.get() / PROGRESS_STEP) {
+            progress.set(p);
+            return EVENT_PROGRESS;
+        }
+        return EVENT_NONE;
+    }
+
+    /** Hold progress 0..100 as of the last reported event. */
+    public int getProgress()       { return progress.get(); }
+
+    public int getConfirmStreak()  { return confirmStreak.get(); }
+
+    public boolean isHeld()        { return gestureHeld.get(); }
+
+    public boolean isTriggered()   { return triggered.get(); }
+
+    /**
+     * True while a gesture is building a confirm streak, being held, or has
+     * fired: a hand over the camera then looks like a pocket to the cover
+     * sensors, and idling the camera would throw the gesture away.
+     */
+    public boolean isEngaged() {
+        return triggered.get() || gestureHeld.get() || confirmStreak.get() > 0;
+    }
+
+    public void reset() {
+        confirmStreak.set(0);
+        gestureHeld.set(false);
+        heldSince.set(0);
+        progress.set(0);
+        triggered.set(false);
+    }
+}
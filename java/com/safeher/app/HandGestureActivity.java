@@ -8,6 +8,7 @@ import android.os.Bundle;
 import android.os.CountDownTimer;
 import android.os.Handler;
 import android.os.Looper;
+import android.os.SystemClock;
 import android.os.VibrationEffect;
 import android.os.Vibrator;
 import android.util.Log;
@@ -35,7 +36,12 @@ import androidx.core.content.ContextCompat;
 
 import com.google.common.util.concurrent.ListenableFuture;
 
+import java.io.File;
+import java.io.IOException;
 import java.nio.ByteBuffer;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.Locale;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 
@@ -45,16 +51,26 @@ public class HandGestureActivity extends AppCompatActivity {
     private static final int    CAMERA_REQ = 201;
     private static final long   HOLD_MS    = 4000;
 
-    // Same detection logic as HandGestureService
-    private static final float PRESENCE_RATIO  = 1.15f;
-    private static final int   MIN_ZONE_LUMA   = 40;
+    // Same detection logic as HandGestureService (see GestureFrameAnalyzer)
     private static final int   CONFIRM_FRAMES  = 5;
-    private static final int   STEP            = 8;
+
+    // Detector choices, cycled by tapping the Detector row
+    private static final String[] DETECTOR_MODES  = {
+        PresenceDetector.MODE_LUMA, PresenceDetector.MODE_SKIN, PresenceDetector.MODE_FINGER };
+    private static final String[] DETECTOR_LABELS = {
+        "Brightness", "Brightness + skin", "Finger shape" };
+
+    // Background trigger choices, cycled by tapping the Trigger row
+    private static final String[] TRIGGER_MODES  = {
+        HandGestureService.TRIGGER_CAMERA, HandGestureService.TRIGGER_COVER };
+    private static final String[] TRIGGER_LABELS = {
+        "Camera gesture", "Cover ×2 (no camera)" };
 
     // UI
     private PreviewView previewView;
     private ImageView   ivFinger, ivRipple;
-    private TextView    tvBack, tvStatus, tvCountdown, tvBgStatus, tvDebug;
+    private TextView    tvBack, tvStatus, tvCountdown, tvBgStatus, tvDebug, tvDetector, tvTrigger;
+    private TextView    tvSavings;
     private ProgressBar progressBar;
     private View        layoutCountdown, layoutIdle;
     private Switch      switchEnable, switchBg;
@@ -62,6 +78,12 @@ public class HandGestureActivity extends AppCompatActivity {
     // Camera
     private ExecutorService       cameraExecutor;
     private ProcessCameraProvider cameraProvider;
+    private final GestureFrameAnalyzer analyzer = new GestureFrameAnalyzer();
+
+    // Debug: raw Y-plane sequence recorder (tap / long-press the debug line).
+    // Only touched on cameraExecutor — the analyzer's single thread — so
+    // open, write and close never interleave.
+    private GestureFrameRecorder recorder;
 
     // Detection state
     private volatile boolean enabled       = true;
@@ -91,6 +113,9 @@ public class HandGestureActivity extends AppCompatActivity {
         layoutIdle      = findViewById(R.id.layoutGestureReady);
         switchEnable    = findViewById(R.id.switchGestureEnable);
         switchBg        = findViewById(R.id.switchBgGesture);
+        tvDetector      = findViewById(R.id.tvGestureDetector);
+        tvTrigger       = findViewById(R.id.tvGestureTrigger);
+        tvSavings       = findViewById(R.id.tvGestureSavings);
 
         pulseAnim  = AnimationUtils.loadAnimation(this, R.anim.pulse);
         rippleAnim = AnimationUtils.loadAnimation(this, R.anim.ripple);
@@ -114,10 +139,128 @@ public class HandGestureActivity extends AppCompatActivity {
             updateBgLabel(on);
         });
 
+        String mode = getSharedPreferences("SaveSouls", MODE_PRIVATE)
+            .getString(HandGestureService.PREF_DETECTOR, PresenceDetector.MODE_LUMA);
+        applyDetector(mode);
+        findViewById(R.id.rowGestureDetector).setOnClickListener(v -> cycleDetector());
+
+        showTrigger(getSharedPreferences("SaveSouls", MODE_PRIVATE)
+            .getString(HandGestureService.PREF_TRIGGER, HandGestureService.TRIGGER_CAMERA));
+        findViewById(R.id.rowGestureTrigger).setOnClickListener(v -> cycleTrigger());
+
+        // Debug recorder: tap = record a gesture take, long-press = record a
+        // "must not trigger" take, tap again to stop. Used to tune the
+        // detector offline with GestureReplayHarness.
+        tvDebug.setOnClickListener(v -> toggleRecording(GestureFrameRecorder.LABEL_GESTURE));
+        tvDebug.setOnLongClickListener(v -> {
+            toggleRecording(GestureFrameRecorder.LABEL_NONE);
+            return true;
+        });
+
         cameraExecutor = Executors.newSingleThreadExecutor();
         requestCameraOrStart();
     }
 
+    // ── Detector choice ───────────────────────────────────────────────────────
+
+    private void cycleDetector() {
+        String current = getSharedPreferences("SaveSouls", MODE_PRIVATE)
+            .getString(HandGestureService.PREF_DETECTOR, PresenceDetector.MODE_LUMA);
+        int i = 0;
+        while (i < DETECTOR_MODES.length && !DETECTOR_MODES[i].equals(current)) i++;
+        String next = DETECTOR_MODES[(i + 1) % DETECTOR_MODES.length];
+        getSharedPreferences("SaveSouls", MODE_PRIVATE).edit()
+            .putString(HandGestureService.PREF_DETECTOR, next).apply();
+        applyDetector(next);
+        // Running background service re-reads the preference on start()
+        if (HandGestureService.isRunning) HandGestureService.start(this);
+    }
+
+    private void applyDetector(String mode) {
+        analyzer.setDetector(PresenceDetector.create(mode));
+        for (int i = 0; i < DETECTOR_MODES.length; i++)
+            if (DETECTOR_MODES[i].equals(mode)) tvDetector.setText(DETECTOR_LABELS[i]);
+    }
+
+    // ── Trigger choice ────────────────────────────────────────────────────────
+
+    private void cycleTrigger() {
+        String current = getSharedPreferences("SaveSouls", MODE_PRIVATE)
+            .getString(HandGestureService.PREF_TRIGGER, HandGestureService.TRIGGER_CAMERA);
+        int i = 0;
+        while (i < TRIGGER_MODES.length && !TRIGGER_MODES[i].equals(current)) i++;
+        String next = TRIGGER_MODES[(i + 1) % TRIGGER_MODES.length];
+        getSharedPreferences("SaveSouls", MODE_PRIVATE).edit()
+            .putString(HandGestureService.PREF_TRIGGER, next).apply();
+        showTrigger(next);
+        if (HandGestureService.isRunning) HandGestureService.start(this);
+    }
+
+    private void showTrigger(String mode) {
+        for (int i = 0; i < TRIGGER_MODES.length; i++)
+            if (TRIGGER_MODES[i].equals(mode)) tvTrigger.setText(TRIGGER_LABELS[i]);
+    }
+
+    // ── Debug recording ───────────────────────────────────────────────────────
+
+    private void toggleRecording(byte label) {
+        cameraExecutor.execute(() -> {
+            if (recorder != null) {
+                closeRecorderNow();
+                return;
+            }
+            File dir = new File(getExternalFilesDir(null), "SaveSouls_GestureRec");
+            if (!dir.exists()) dir.mkdirs();
+            String ts = new SimpleDateFormat("yyyyMMdd_HHmmss", Locale.US).format(new Date());
+            String kind = label == GestureFrameRecorder.LABEL_GESTURE ? "gesture" : "none";
+            File file = new File(dir, kind + "_" + ts + GestureFrameRecorder.EXTENSION);
+            try {
+                recorder = new GestureFrameRecorder(file, label);
+                ui.post(() -> Toast.makeText(this,
+                    "● Recording " + kind + " take — tap debug line to stop",
+                    Toast.LENGTH_SHORT).show());
+            } catch (IOException e) {
+                Log.e(TAG, "Recorder open failed: " + e.getMessage());
+            }
+        });
+    }
+
+    /** Closes the recorder on the analyzer thread so no write is cut in half. */
+    private void closeRecorder() {
+        cameraExecutor.execute(this::closeRecorderNow);
+    }
+
+    /** Analyzer thread. */
+    private void closeRecorderNow() {
+        GestureFrameRecorder r = recorder;
+        if (r == null) return;
+        recorder = null;
+        try {
+            r.close();
+            Log.d(TAG, "Saved " + r.getFrameCount() + " frames → " + r.getFile());
+            ui.post(() -> Toast.makeText(this,
+                "Saved " + r.getFrameCount() + " frames: " + r.getFile().getName(),
+                Toast.LENGTH_SHORT).show());
+        } catch (IOException e) {
+            Log.e(TAG, "Recorder close failed: " + e.getMessage());
+        }
+    }
+
+    // Background service's motion-gate skips and covered time, refreshed while visible
+    private static final long SAVINGS_REFRESH_MS = 2000;
+
+    private final Runnable refreshSavings = new Runnable() {
+        @Override public void run() {
+            if (tvSavings == null) return;
+            tvSavings.setText(HandGestureService.isRunning
+                ? String.format(Locale.US, "skip %.0f%% · off %.0f%%",
+                    HandGestureService.getSkipRatio() * 100f,
+                    HandGestureService.getCameraOffFraction() * 100f)
+                : "—");
+            ui.postDelayed(this, SAVINGS_REFRESH_MS);
+        }
+    };
+
     private void updateBgLabel(boolean on) {
         if (tvBgStatus == null) return;
         tvBgStatus.setText(on
@@ -163,59 +306,68 @@ public class HandGestureActivity extends AppCompatActivity {
 
     @OptIn(markerClass = ExperimentalGetImage.class)
     private void analyseFrame(ImageProxy proxy) {
-        if (!enabled || isCounting) { proxy.close(); return; }
+        // Keep feeding an active recording even while the countdown runs
+        if ((!enabled || isCounting) && recorder == null) { proxy.close(); return; }
 
         Image img = proxy.getImage();
         if (img == null) { proxy.close(); return; }
 
-        Image.Plane yPlane = img.getPlanes()[0];
+        Image.Plane[] planes = img.getPlanes();
+        Image.Plane yPlane = planes[0];
         ByteBuffer  yBuf   = yPlane.getBuffer();
         int W = img.getWidth(), H = img.getHeight();
         int rowStride = yPlane.getRowStride();
         int pixStride = yPlane.getPixelStride();
 
-        // Full frame average
-        long fullSum = 0; int fullCnt = 0;
-        for (int y = 0; y < H; y += STEP * 2) {
-            for (int x = 0; x < W; x += STEP * 2) {
-                int idx = y * rowStride + x * pixStride;
-                if (idx >= 0 && idx < yBuf.limit()) {
-                    fullSum += yBuf.get(idx) & 0xFF; fullCnt++;
-                }
-            }
-        }
-        float fullAvg = fullCnt > 0 ? (float) fullSum / fullCnt : 128f;
-
-        // Upper-centre zone (where user holds their finger)
-        int zX0 = W / 4, zX1 = 3 * W / 4;
-        int zY0 = 0,      zY1 = (int)(H * 0.45f);
-        long zoneSum = 0; int zoneCnt = 0;
-        for (int y = zY0; y < zY1; y += STEP) {
-            for (int x = zX0; x < zX1; x += STEP) {
-                int idx = y * rowStride + x * pixStride;
-                if (idx >= 0 && idx < yBuf.limit()) {
-                    zoneSum += yBuf.get(idx) & 0xFF; zoneCnt++;
-                }
+        if (recorder != null) {
+            try {
+                recorder.write(yBuf, W, H, rowStride, pixStride, SystemClock.elapsedRealtime());
+            } catch (IOException e) {
+                Log.e(TAG, "Recording failed: " + e.getMessage());
+                closeRecorderNow();
             }
         }
-        float zoneAvg = zoneCnt > 0 ? (float) zoneSum / zoneCnt : 0f;
+        final int recFrames = recorder != null ? recorder.getFrameCount() : -1;
+        if (!enabled || isCounting) { proxy.close(); return; }
 
-        proxy.close();
+        analyzer.setRotationDegrees(proxy.getImageInfo().getRotationDegrees());
+        boolean present = analyzer.analyse(yBuf, W, H, rowStride, pixStride,
+            planes[1].getBuffer(), planes[2].getBuffer(),
+            planes[1].getRowStride(), planes[1].getPixelStride());
+        float fullAvg = analyzer.getFullAvg(), zoneAvg = analyzer.getZoneAvg();
+        float pct = analyzer.getZonePercentile() * 100f;
+        final String detail = detectorDebug();
 
-        boolean present = (zoneAvg > fullAvg * PRESENCE_RATIO) && (zoneAvg > MIN_ZONE_LUMA);
-        float ratio = fullAvg > 0 ? zoneAvg / fullAvg : 0f;
+        proxy.close();
 
         ui.post(() -> {
             // Show live debug info so user can see what's happening
             if (tvDebug != null) {
                 tvDebug.setText(String.format(
-                    "zone=%.0f  frame=%.0f  ratio=%.2f  %s",
-                    zoneAvg, fullAvg, ratio, present ? "✅ DETECTED" : "—"));
+                    "zone=%.0f  frame=%.0f  pct=%.0f%s  %s%s",
+                    zoneAvg, fullAvg, pct, detail, present ? "✅ DETECTED" : "—",
+                    recFrames >= 0 ? "  ● REC " + recFrames : ""));
             }
             onPresence(present);
         });
     }
 
+    /** Readout of the chosen detector for the debug line. Camera executor. */
+    private String detectorDebug() {
+        PresenceDetector d = analyzer.getDetector();
+        if (d instanceof SkinTonePresenceDetector) {
+            return "  skin=" + ((SkinTonePresenceDetector) d).getSkinPermille() + "‰";
+        }
+        if (d instanceof FingerBlobDetector) {
+            FingerBlobDetector f = (FingerBlobDetector) d;
+            return String.format(Locale.US,
+                "  blobs=%d fingers=%d elong=%.1f %.0f° @%.2f,%.2f",
+                f.getBlobCount(), f.getFingerCount(), f.getElongation(),
+                f.getOrientationDeg(), f.getCentroidX(), f.getCentroidY());
+        }
+        return "";
+    }
+
     // ── Gesture hold logic ────────────────────────────────────────────────────
 
     private void onPresence(boolean present) {
@@ -316,11 +468,14 @@ public class HandGestureActivity extends AppCompatActivity {
     @Override protected void onResume() {
         super.onResume();
         if (switchBg != null) { boolean r = HandGestureService.isRunning; switchBg.setChecked(r); updateBgLabel(r); }
+        ui.removeCallbacks(refreshSavings);
+        ui.post(refreshSavings);
     }
 
-    @Override protected void onPause()   { super.onPause();   cancelHold(); }
+    @Override protected void onPause()   { super.onPause();   cancelHold(); ui.removeCallbacks(refreshSavings); }
     @Override protected void onDestroy() {
         super.onDestroy();
+        closeRecorder();
         if (cameraExecutor != null) cameraExecutor.shutdown();
         if (holdTimer != null) holdTimer.cancel();
     }
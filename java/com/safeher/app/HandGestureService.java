@@ -7,17 +7,28 @@ import android.app.PendingIntent;
 import android.app.Service;
 import android.content.Context;
 import android.content.Intent;
+import android.graphics.ImageFormat;
+import android.graphics.Rect;
+import android.graphics.YuvImage;
+import android.hardware.camera2.CameraCharacteristics;
+import android.hardware.camera2.CameraManager;
+import android.hardware.camera2.CaptureRequest;
 import android.media.Image;
 import android.os.Build;
 import android.os.Handler;
 import android.os.IBinder;
 import android.os.Looper;
+import android.os.SystemClock;
 import android.os.VibrationEffect;
 import android.os.Vibrator;
 import android.util.Log;
+import android.util.Range;
+import android.util.Size;
 
 import androidx.annotation.NonNull;
 import androidx.annotation.OptIn;
+import androidx.camera.camera2.interop.Camera2Interop;
+import androidx.camera.camera2.interop.ExperimentalCamera2Interop;
 import androidx.camera.core.CameraSelector;
 import androidx.camera.core.ExperimentalGetImage;
 import androidx.camera.core.ImageAnalysis;
@@ -31,7 +42,13 @@ import androidx.lifecycle.LifecycleRegistry;
 
 import com.google.common.util.concurrent.ListenableFuture;
 
+import java.io.File;
 import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.TimeZone;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 
@@ -47,11 +64,36 @@ import java.util.concurrent.Executors;
  *   centre of the frame compared to the rest? A hand/finger held close to
  *   the front camera is brighter than the background.
  *   → Uses adaptive threshold: upper zone avg vs full frame avg.
+ *   → Optional detectors (PREF_DETECTOR): skin tone on U/V, or a single
+ *     vertical finger blob on the binarised tile grid.
  *
  * PHASE 2 — HOLD: Once presence is confirmed, user must hold still for 4s.
- *   If the object disappears, reset the timer.
+ *   If the object disappears, reset the timer. This runs on the analyzer
+ *   thread (see GestureHoldTracker); the main thread only sees transitions.
  *
  * This is far more reliable than shape detection and works in any lighting.
+ *
+ * COMMANDS: the confirmed on/off edges also feed GestureGrammar — two quick
+ * covers cancel a running alarm, three start silent camera evidence. For
+ * the latter the gesture camera is released first and rebound only once
+ * CameraEvidenceService has stopped, so the two never compete for a camera.
+ *
+ * MOTION GATE: the full-frame pass also fills a coarse 8×6 tile grid. When no
+ * tile changed beyond a small noise margin since the last analysed frame, the
+ * zone pass is skipped and the previous presence result is carried forward.
+ *
+ * PREF_TRIGGER = cover replaces the camera with a cover-uncover-cover
+ * pattern on the proximity/light sensors (CoverPatternMatcher), for users
+ * who would rather not pay for a running camera.
+ *
+ * AnalysisGovernor lowers resolution, frame rate and sampling density when
+ * the phone is hot or the battery is low, and CoverSensorMonitor idles the
+ * camera entirely while the phone is in a pocket or bag — but never while
+ * the tracker is engaged, since a hand mid-gesture covers the sensors too
+ * (CoverGate decides).
+ *
+ * Both phases, the tier table (AnalysisTier) and the pocket gate are plain
+ * Java so they can be replayed on the JVM with GestureReplayHarness.
  */
 public class HandGestureService extends Service implements LifecycleOwner {
 
@@ -64,6 +106,12 @@ public class HandGestureService extends Service implements LifecycleOwner {
     public static final String EXTRA_DETECTED    = "detected";
     public static final String EXTRA_PROGRESS    = "progress";
     public static final String PREF_ENABLED      = "hand_gesture_enabled";
+    public static final String PREF_DETECTOR     = "hand_gesture_detector";
+    public static final String PREF_TRIGGER      = "hand_gesture_trigger";
+
+    // PREF_TRIGGER values: camera gesture, or cover-uncover-cover on the sensors
+    public static final String TRIGGER_CAMERA    = "camera";
+    public static final String TRIGGER_COVER     = "cover";
 
     public static volatile boolean isRunning = false;
 
@@ -88,13 +136,7 @@ public class HandGestureService extends Service implements LifecycleOwner {
     }
 
     // ── Detection tuning ─────────────────────────────────────────────────────
-
-    // How much brighter the upper zone must be vs the rest of the frame
-    // 1.15 = 15% brighter → hand is present
-    private static final float PRESENCE_RATIO   = 1.15f;
-
-    // Minimum absolute brightness of upper zone (avoids triggering in pitch dark)
-    private static final int   MIN_ZONE_LUMA    = 40;
+    // Presence thresholds and sampling step live in GestureFrameAnalyzer.
 
     // How long finger must be held to trigger SOS
     private static final long  HOLD_MS          = 4000;
@@ -102,8 +144,21 @@ public class HandGestureService extends Service implements LifecycleOwner {
     // Consecutive frames needed before we start the hold timer (debounce)
     private static final int   CONFIRM_FRAMES   = 5;
 
-    // Sample step — every N pixels (performance)
-    private static final int   STEP             = 8;
+    // Evidence hand-off: frames saved straight from the analysis stream after
+    // the trigger, while CameraEvidenceService is still opening the back camera
+    private static final int   HANDOFF_FRAMES       = 3;
+    private static final long  HANDOFF_INTERVAL_MS  = 250;
+    private static final int   HANDOFF_JPEG_QUALITY = 85;
+
+    // Tolerance on the tier frame interval; frames arrive at the tier rate ± jitter
+    private static final int   FRAME_JITTER_PCT     = 25;
+
+    // While gesture-started evidence runs the camera stays released; checked this often
+    private static final long  EVIDENCE_POLL_MS     = 2000;
+
+    // Sensor batching in cover-trigger mode; the matcher works on event
+    // timestamps, so late delivery only delays the SOS by this much
+    private static final int   COVER_BATCH_US       = 200_000;
 
     // ── State ─────────────────────────────────────────────────────────────────
 
@@ -112,15 +167,77 @@ public class HandGestureService extends Service implements LifecycleOwner {
     private ProcessCameraProvider  cameraProvider;
     private final Handler          uiHandler = new Handler(Looper.getMainLooper());
 
-    private volatile int     confirmStreak  = 0;   // consecutive "present" frames
-    private volatile boolean gestureHeld    = false;
-    private volatile long    heldSince      = 0;
-    private volatile boolean sosTriggered   = false;
+    // Confirm/hold/trigger state — advanced on the analyzer thread
+    private final GestureHoldTracker tracker =
+        new GestureHoldTracker(CONFIRM_FRAMES, HOLD_MS);
 
-    // Previous frame luma snapshot for motion check
-    private volatile int[]   lastLuma       = null;
+    // Presence + motion gate — only touched on the analyzer thread
+    private final GestureFrameAnalyzer analyzer = new GestureFrameAnalyzer();
+    private String           detectorMode   = PresenceDetector.MODE_LUMA;
     private volatile int     frameCount     = 0;
 
+    private static volatile GestureFrameAnalyzer activeAnalyzer = null;
+
+    // Thermal / battery quality tiers
+    private AnalysisGovernor governor;
+    private long   lastAnalysedAt = 0;
+    private List<Range<Integer>> frontFpsRanges;   // main thread, loaded on first bind
+
+    // Proximity / light gating (main thread)
+    private CoverSensorMonitor coverMonitor;
+    private final CoverGate coverGate = new CoverGate();
+    private long    startedAt      = 0;
+    private long    gatedSince     = 0;
+    private static volatile long gatedTotalMs = 0;
+    private static volatile long runningSince = 0;
+
+    // Camera-free trigger (PREF_TRIGGER = cover): camera stays unbound
+    private boolean coverTrigger = false;
+    private final CoverPatternMatcher coverPattern = new CoverPatternMatcher();
+    private boolean coverFired   = false;
+
+    // Camera lent to CameraEvidenceService after the evidence command (main thread)
+    private boolean evidencePaused = false;
+
+    /** Fraction (0..1) of this session's running time the camera was off because the phone was covered. */
+    public static float getCameraOffFraction() {
+        long since = runningSince;
+        if (since == 0) return 0f;
+        long total = SystemClock.elapsedRealtime() - since;
+        return total > 0 ? Math.min(1f, (float) gatedTotalMs / total) : 0f;
+    }
+
+    private final Runnable gateCamera = () -> {
+        long now = SystemClock.elapsedRealtime();
+        if (!coverGate.poll(now, tracker.isEngaged())) {
+            // A hand mid-gesture covers the sensors too; look again once it is gone
+            long at = coverGate.getCheckAt();
+            if (at >= 0) uiHandler.postDelayed(this.gateCamera, Math.max(0, at - now));
+            return;
+        }
+        gatedSince = now;
+        if (cameraProvider != null) {
+            try { cameraProvider.unbindAll(); } catch (Exception ignored) {}
+        }
+        Log.d(TAG, "Front covered — camera idle");
+    };
+
+    // Quick-cover commands, fed with the tracker's edges (main thread)
+    private final GestureGrammar grammar = new GestureGrammar(CONFIRM_FRAMES);
+
+    // Hand-off state — analyzer thread only
+    private int    handoffSaved  = 0;
+    private long   lastHandoffAt = 0;
+    private byte[] handoffNv21   = null;
+    private boolean handoffDone  = false;
+    private EvidenceWriter handoffWriter;
+
+    /** Fraction of frames (0..1) whose presence check was skipped by the motion gate. */
+    public static float getSkipRatio() {
+        GestureFrameAnalyzer a = activeAnalyzer;
+        return a != null ? a.getSkipRatio() : 0f;
+    }
+
     // ── Lifecycle ─────────────────────────────────────────────────────────────
 
     @Override
@@ -132,7 +249,16 @@ public class HandGestureService extends Service implements LifecycleOwner {
         lifecycleRegistry.setCurrentState(Lifecycle.State.RESUMED);
         createChannel();
         isRunning = true;
+        activeAnalyzer = analyzer;
         startForeground(NOTIF_ID, buildNotif(false, 0));
+        governor = new AnalysisGovernor(this, this::onTierChanged);
+        governor.start();
+        analyzer.setStep(governor.getTier().step);
+        grammar.setFrameIntervalMs(governor.getTier().minFrameIntervalMs);
+        startedAt    = SystemClock.elapsedRealtime();
+        runningSince = startedAt;
+        gatedTotalMs = 0;
+        startCoverMonitor();
     }
 
     @Override
@@ -141,6 +267,8 @@ public class HandGestureService extends Service implements LifecycleOwner {
             stopSelf();
             return START_NOT_STICKY;
         }
+        applyDetectorPref();
+        applyTriggerPref();
         if (cameraExecutor == null) {
             cameraExecutor = Executors.newSingleThreadExecutor();
             uiHandler.post(this::startCamera);
@@ -150,16 +278,61 @@ public class HandGestureService extends Service implements LifecycleOwner {
 
     @Override public IBinder onBind(Intent i) { return null; }
 
+    /** Re-read the chosen detector; start() is re-sent when the user changes it. */
+    private void applyDetectorPref() {
+        String mode = getSharedPreferences("SaveSouls", MODE_PRIVATE)
+            .getString(PREF_DETECTOR, PresenceDetector.MODE_LUMA);
+        if (!mode.equals(detectorMode)) {
+            detectorMode = mode;
+            analyzer.setDetector(PresenceDetector.create(mode));
+            Log.d(TAG, "Presence detector: " + mode);
+        }
+    }
+
+    /** Switch between the camera gesture and the camera-free cover pattern. */
+    private void applyTriggerPref() {
+        boolean cover = TRIGGER_COVER.equals(getSharedPreferences("SaveSouls", MODE_PRIVATE)
+            .getString(PREF_TRIGGER, TRIGGER_CAMERA));
+        if (cover == coverTrigger) return;
+        coverTrigger = cover;
+        coverPattern.reset();
+        uiHandler.removeCallbacks(gateCamera);
+        if (coverGate.isGated()) gatedTotalMs += SystemClock.elapsedRealtime() - gatedSince;
+        coverGate.reset();
+        startCoverMonitor();
+        if (cover) releaseCamera(); else bindAnalysis();
+        updateNotif(false, 0);
+        Log.d(TAG, "Trigger mode: " + (cover ? TRIGGER_COVER : TRIGGER_CAMERA));
+    }
+
+    private void startCoverMonitor() {
+        if (coverMonitor != null) coverMonitor.stop();
+        coverMonitor = new CoverSensorMonitor(this, this::onCoverChanged,
+            coverTrigger ? COVER_BATCH_US : 0);
+        coverMonitor.start();
+    }
+
     @Override
     public void onDestroy() {
         super.onDestroy();
         isRunning = false;
+        activeAnalyzer = null;
         lifecycleRegistry.setCurrentState(Lifecycle.State.DESTROYED);
         uiHandler.removeCallbacksAndMessages(null);
+        if (governor != null) governor.stop();
+        if (coverMonitor != null) coverMonitor.stop();
+        if (coverGate.isGated()) gatedTotalMs += SystemClock.elapsedRealtime() - gatedSince;
+        Log.d(TAG, String.format(Locale.US, "Camera off while covered: %.0f%% of %ds",
+            getCameraOffFraction() * 100f, (SystemClock.elapsedRealtime() - startedAt) / 1000));
+        runningSince = 0;
         if (cameraProvider != null) {
             try { cameraProvider.unbindAll(); } catch (Exception ignored) {}
         }
-        if (cameraExecutor != null) cameraExecutor.shutdown();
+        if (cameraExecutor != null) {
+            // Behind any frame still being handed off
+            cameraExecutor.execute(this::stopHandoffWriter);
+            cameraExecutor.shutdown();
+        }
         broadcast(false, 0);
         getSharedPreferences("SaveSouls", MODE_PRIVATE)
             .edit().putBoolean(PREF_ENABLED, false).apply();
@@ -176,16 +349,7 @@ public class HandGestureService extends Service implements LifecycleOwner {
         fut.addListener(() -> {
             try {
                 cameraProvider = fut.get();
-                ImageAnalysis analysis = new ImageAnalysis.Builder()
-                    .setBackpressureStrategy(ImageAnalysis.STRATEGY_KEEP_ONLY_LATEST)
-                    .build();
-                analysis.setAnalyzer(cameraExecutor, this::analyseFrame);
-                cameraProvider.unbindAll();
-                cameraProvider.bindToLifecycle(
-                    this,
-                    CameraSelector.DEFAULT_FRONT_CAMERA,
-                    analysis
-                );
+                bindAnalysis();
                 Log.d(TAG, "Camera started for gesture detection");
             } catch (Exception e) {
                 Log.e(TAG, "Camera start failed: " + e.getMessage());
@@ -193,16 +357,123 @@ public class HandGestureService extends Service implements LifecycleOwner {
         }, ContextCompat.getMainExecutor(this));
     }
 
+    /** (Re)bind the analysis use case at the governor's current resolution and frame rate. */
+    @OptIn(markerClass = ExperimentalCamera2Interop.class)
+    private void bindAnalysis() {
+        if (cameraProvider == null || coverTrigger || coverGate.isGated() || evidencePaused
+                || tracker.isTriggered()) return;
+        try {
+            AnalysisTier tier = governor.getTier();
+            ImageAnalysis.Builder builder = new ImageAnalysis.Builder()
+                .setTargetResolution(new Size(tier.width, tier.height))
+                .setBackpressureStrategy(ImageAnalysis.STRATEGY_KEEP_ONLY_LATEST);
+            Range<Integer> fps = fpsRangeFor(tier.targetFps());
+            if (fps != null) {
+                new Camera2Interop.Extender<>(builder)
+                    .setCaptureRequestOption(CaptureRequest.CONTROL_AE_TARGET_FPS_RANGE, fps);
+            }
+            ImageAnalysis analysis = builder.build();
+            analysis.setAnalyzer(cameraExecutor, this::analyseFrame);
+            cameraProvider.unbindAll();
+            cameraProvider.bindToLifecycle(
+                this,
+                CameraSelector.DEFAULT_FRONT_CAMERA,
+                analysis
+            );
+        } catch (Exception e) {
+            Log.e(TAG, "Camera bind failed: " + e.getMessage());
+        }
+    }
+
+    /**
+     * The front camera's slowest AE range that still delivers {@code fps},
+     * or null for no limit (FULL tier, or nothing suitable advertised).
+     */
+    private Range<Integer> fpsRangeFor(int fps) {
+        if (fps <= 0) return null;
+        if (frontFpsRanges == null) {
+            frontFpsRanges = Collections.emptyList();
+            try {
+                CameraSetup setup = CameraSetup.get(this);
+                CameraManager cm  = (CameraManager) getSystemService(CAMERA_SERVICE);
+                if (setup != null && setup.frontId != null) {
+                    Range<Integer>[] ranges = cm.getCameraCharacteristics(setup.frontId)
+                        .get(CameraCharacteristics.CONTROL_AE_AVAILABLE_TARGET_FPS_RANGES);
+                    if (ranges != null) frontFpsRanges = Arrays.asList(ranges);
+                }
+            } catch (Exception e) {
+                Log.w(TAG, "FPS ranges unavailable: " + e.getMessage());
+            }
+        }
+        Range<Integer> best = null;
+        for (Range<Integer> r : frontFpsRanges) {
+            if (r.getUpper() < fps) continue;
+            if (best == null || r.getUpper() < best.getUpper()
+                    || (r.getUpper().equals(best.getUpper()) && r.getLower() < best.getLower())) {
+                best = r;
+            }
+        }
+        return best;
+    }
+
+    /** Governor callback (main thread): apply the new tier. */
+    private void onTierChanged(AnalysisTier from, AnalysisTier to) {
+        analyzer.setStep(to.step);
+        grammar.setFrameIntervalMs(to.minFrameIntervalMs);
+        if (!from.sameResolution(to)
+                || from.minFrameIntervalMs != to.minFrameIntervalMs) {
+            bindAnalysis();
+        }
+    }
+
+    /** Cover monitor callback (main thread). */
+    private void onCoverChanged(boolean covered, long timestampMs) {
+        if (coverTrigger) {
+            if (coverPattern.onCoverChanged(covered, timestampMs) && !coverFired) {
+                coverFired = true;
+                vibrate(600);
+                Log.d(TAG, "SOS triggered by cover pattern!");
+                fireSOSNow();
+            }
+            return;
+        }
+        long now = SystemClock.elapsedRealtime();
+        if (covered) {
+            coverGate.onCoverChanged(true, now);
+            uiHandler.removeCallbacks(gateCamera);
+            uiHandler.postDelayed(gateCamera, CoverGate.DEBOUNCE_MS);
+            return;
+        }
+        uiHandler.removeCallbacks(gateCamera);
+        if (!coverGate.onCoverChanged(false, now)) return;
+        gatedTotalMs += now - gatedSince;
+        bindAnalysis();
+        Log.d(TAG, String.format(Locale.US, "Uncovered — camera back on (off %.0f%% so far)",
+            getCameraOffFraction() * 100f));
+    }
+
     // ── Frame analysis ────────────────────────────────────────────────────────
 
     @OptIn(markerClass = ExperimentalGetImage.class)
     private void analyseFrame(ImageProxy proxy) {
-        if (sosTriggered) { proxy.close(); return; }
+        if (tracker.isTriggered()) { handOffFrame(proxy); return; }
+
+        // Frame-rate cap from the current quality tier; the camera is asked for
+        // this rate in bindAnalysis(), so this only catches frames well ahead of
+        // it — one a little early (delivery jitter) still counts
+        long now = SystemClock.elapsedRealtime();
+        long interval = governor.getTier().minFrameIntervalMs;
+        if (now - lastAnalysedAt < interval - interval * FRAME_JITTER_PCT / 100) {
+            proxy.close();
+            return;
+        }
+        lastAnalysedAt = now;
 
         Image img = proxy.getImage();
         if (img == null) { proxy.close(); return; }
 
-        Image.Plane yPlane = img.getPlanes()[0];
+        Image.Plane[] planes = img.getPlanes();
+        Image.Plane yPlane = planes[0];
         ByteBuffer  yBuf   = yPlane.getBuffer();
         int W = img.getWidth(), H = img.getHeight();
         int rowStride  = yPlane.getRowStride();
@@ -210,95 +481,209 @@ public class HandGestureService extends Service implements LifecycleOwner {
 
         frameCount++;
 
-        // ── Sample full frame average luma ────────────────────────────────
-        long fullSum = 0; int fullCnt = 0;
-        for (int y = 0; y < H; y += STEP * 2) {
-            for (int x = 0; x < W; x += STEP * 2) {
-                int idx = y * rowStride + x * pixStride;
-                if (idx >= 0 && idx < yBuf.limit()) {
-                    fullSum += yBuf.get(idx) & 0xFF;
-                    fullCnt++;
-                }
-            }
-        }
-        float fullAvg = fullCnt > 0 ? (float) fullSum / fullCnt : 128f;
-
-        // ── Sample UPPER-CENTRE zone (where finger/hand would appear) ─────
-        // Zone: middle third horizontally, top 40% vertically
-        int zX0 = W / 4,   zX1 = 3 * W / 4;
-        int zY0 = 0,        zY1 = (int)(H * 0.45f);
-
-        long zoneSum = 0; int zoneCnt = 0;
-        for (int y = zY0; y < zY1; y += STEP) {
-            for (int x = zX0; x < zX1; x += STEP) {
-                int idx = y * rowStride + x * pixStride;
-                if (idx >= 0 && idx < yBuf.limit()) {
-                    zoneSum += yBuf.get(idx) & 0xFF;
-                    zoneCnt++;
-                }
-            }
-        }
-        float zoneAvg = zoneCnt > 0 ? (float) zoneSum / zoneCnt : 0f;
-
+        analyzer.setRotationDegrees(proxy.getImageInfo().getRotationDegrees());
+        boolean present = analyzer.analyse(yBuf, W, H, rowStride, pixStride,
+            planes[1].getBuffer(), planes[2].getBuffer(),
+            planes[1].getRowStride(), planes[1].getPixelStride());
         proxy.close();
 
-        // ── DETECTION LOGIC ───────────────────────────────────────────────
-        // A hand/finger in the upper-centre makes that zone noticeably brighter
-        // than the overall frame average.
-        // Also require minimum absolute brightness (not pitch dark).
-        boolean present = (zoneAvg > fullAvg * PRESENCE_RATIO)
-                       && (zoneAvg > MIN_ZONE_LUMA);
-
         // Log every 30 frames for debugging
         if (frameCount % 30 == 0) {
+            float fullAvg = analyzer.getFullAvg(), zoneAvg = analyzer.getZoneAvg();
             Log.d(TAG, String.format(
-                "frameAvg=%.1f zoneAvg=%.1f ratio=%.2f present=%b streak=%d",
-                fullAvg, zoneAvg, zoneAvg / Math.max(1, fullAvg), present, confirmStreak));
+                "frameAvg=%.1f zoneAvg=%.1f pct=%.0f present=%b streak=%d skip=%.0f%% tier=%s",
+                fullAvg, zoneAvg, analyzer.getZonePercentile() * 100f, present,
+                tracker.getConfirmStreak(),
+                analyzer.getSkipRatio() * 100f, governor.getTier().name));
         }
 
-        final boolean fin = present;
-        uiHandler.post(() -> onPresence(fin));
+        onPresence(present);
     }
 
     // ── Presence → hold timer ─────────────────────────────────────────────────
 
+    /**
+     * Runs on the analyzer thread. Only real state transitions are handed
+     * to the main thread; steady frames cost no main-looper work at all.
+     */
     private void onPresence(boolean present) {
-        if (sosTriggered) return;
+        long now  = SystemClock.elapsedRealtime();
+        int event = tracker.onFrame(present, now);
+        if (event == GestureHoldTracker.EVENT_NONE) return;
+        final int progress = tracker.getProgress();
+        uiHandler.post(() -> onHoldEvent(event, progress, now));
+    }
 
-        if (present) {
-            confirmStreak = Math.min(confirmStreak + 1, CONFIRM_FRAMES + 10);
-        } else {
-            confirmStreak = Math.max(0, confirmStreak - 2); // decay faster than growth
+    private void onHoldEvent(int event, int progress, long atMs) {
+        switch (event) {
+            case GestureHoldTracker.EVENT_HOLD_STARTED:
+                uiHandler.removeCallbacks(checkGrammar);
+                grammar.onEdge(true, atMs);
+                vibrate(60);
+                Log.d(TAG, "Gesture hold started");
+                updateNotif(true, progress);
+                broadcast(true, progress);
+                break;
+            case GestureHoldTracker.EVENT_HOLD_RESET:
+                grammar.onEdge(false, atMs);
+                uiHandler.postDelayed(checkGrammar, grammar.getQuietMs());
+                updateNotif(false, 0);
+                broadcast(false, 0);
+                Log.d(TAG, "Gesture hold reset");
+                break;
+            case GestureHoldTracker.EVENT_PROGRESS:
+                // A reset may already be queued behind this; skip stale progress
+                if (!tracker.isHeld()) break;
+                updateNotif(true, progress);
+                broadcast(true, progress);
+                break;
+            case GestureHoldTracker.EVENT_TRIGGER:
+                uiHandler.removeCallbacks(checkGrammar);
+                grammar.reset();
+                updateNotif(true, 100);
+                broadcast(true, 100);
+                vibrate(600);
+                Log.d(TAG, "SOS triggered by gesture!");
+                fireSOSNow();
+                break;
         }
+    }
 
-        boolean confirmed = confirmStreak >= CONFIRM_FRAMES;
-
-        if (confirmed && !gestureHeld) {
-            // Gesture just confirmed — start hold timer
-            gestureHeld = true;
-            heldSince   = System.currentTimeMillis();
-            vibrate(60);
-            Log.d(TAG, "Gesture hold started");
-        } else if (!confirmed && gestureHeld) {
-            // Gesture lost — reset
-            gestureHeld = false;
-            updateNotif(false, 0);
-            broadcast(false, 0);
-            Log.d(TAG, "Gesture hold reset");
+    /**
+     * Runs getQuietMs() after the hand went away; acts on a finished burst of
+     * covers. Cancel reaches alarms started from either service (widget,
+     * scream, shake, SOS button). A gesture SOS is the exception: this
+     * service hands its camera to the evidence capture and stops (see
+     * fireSOSNow), so that alarm is cancelled from SosActivity or the widget.
+     */
+    private final Runnable checkGrammar = () -> {
+        switch (grammar.onQuiet(SystemClock.elapsedRealtime())) {
+            case GestureGrammar.COMMAND_CANCEL:
+                vibrate(150);
+                Log.d(TAG, "Gesture command: cancel");
+                Intent stop = new Intent(this, SafeHerService.class);
+                stop.setAction(SafeHerService.ACTION_STOP_ALARM);
+                startService(stop);
+                if (SosService.isAlarmActive) {
+                    Intent sos = new Intent(this, SosService.class);
+                    sos.setAction(SosService.ACTION_STOP_ALARM);
+                    startService(sos);
+                }
+                break;
+            case GestureGrammar.COMMAND_EVIDENCE:
+                vibrate(150);
+                Log.d(TAG, "Gesture command: silent evidence");
+                // Free the front camera first: the evidence front companion needs
+                // it, and devices without concurrent cameras cannot open the back
+                // camera while this one is held
+                evidencePaused = true;
+                releaseCamera();
+                startService(CameraEvidenceService.startIntent(this));
+                uiHandler.postDelayed(resumeAfterEvidence, EVIDENCE_POLL_MS);
+                break;
         }
+    };
 
-        if (gestureHeld) {
-            long elapsed  = System.currentTimeMillis() - heldSince;
-            int  progress = (int) Math.min(100, elapsed * 100L / HOLD_MS);
-            updateNotif(true, progress);
-            broadcast(true, progress);
-
-            if (elapsed >= HOLD_MS) {
-                sosTriggered = true;
-                vibrate(600);
-                Log.d(TAG, "SOS triggered by gesture!");
-                fireSOSNow();
+    /** Rebind once the evidence session has given the cameras back. */
+    private final Runnable resumeAfterEvidence = () -> {
+        if (CameraEvidenceService.isRunning) {
+            uiHandler.postDelayed(this.resumeAfterEvidence, EVIDENCE_POLL_MS);
+            return;
+        }
+        evidencePaused = false;
+        bindAnalysis();
+        Log.d(TAG, "Evidence finished — gesture camera back on");
+    };
+
+    // ── Evidence hand-off ─────────────────────────────────────────────────────
+
+    /**
+     * After the trigger the front camera is still bound and streaming, so the
+     * first evidence photos come straight from the analysis frames — within
+     * milliseconds, instead of waiting for the back camera to cold-open.
+     * Once HANDOFF_FRAMES are saved the camera is released so the evidence
+     * service can take over.
+     *
+     * Frames are labelled h<n> (CAM_<ts>_h1.jpg …), apart from the evidence
+     * service's own <n> and f<n>, and go through an EvidenceWriter like every
+     * other evidence photo: .part until forced, EXIF spliced, thumbnail alongside.
+     */
+    @OptIn(markerClass = ExperimentalGetImage.class)
+    private void handOffFrame(ImageProxy proxy) {
+        try {
+            if (handoffSaved >= HANDOFF_FRAMES) return;
+            long now = SystemClock.elapsedRealtime();
+            if (handoffSaved > 0 && now - lastHandoffAt < HANDOFF_INTERVAL_MS) return;
+
+            Image img = proxy.getImage();
+            if (img == null) return;
+            Image.Plane[] p = img.getPlanes();
+            int W = img.getWidth(), H = img.getHeight();
+            handoffNv21 = YuvConverter.toNv21(W, H,
+                p[0].getBuffer(), p[0].getRowStride(), p[0].getPixelStride(),
+                p[1].getBuffer(), p[2].getBuffer(), p[1].getRowStride(), p[1].getPixelStride(),
+                handoffNv21);
+
+            if (handoffWriter == null) {
+                File dir = new File(getExternalFilesDir(null), "SaveSouls_Evidence");
+                if (!dir.exists()) dir.mkdirs();
+                handoffWriter = new EvidenceWriter(dir, HANDOFF_FRAMES, EvidenceWriter.parsePolicy(
+                    getSharedPreferences("SaveSouls", MODE_PRIVATE)
+                        .getString(CameraEvidenceService.PREF_FSYNC, "periodic")));
+                handoffWriter.start();
             }
+            long wallMs = System.currentTimeMillis();
+            String label = "h" + (handoffSaved + 1);
+            EvidenceWriter.Buffer thumb = handoffWriter.obtain();
+            try {
+                EvidenceThumbs.encodeNv21(handoffNv21, W, H, thumb);
+            } catch (Exception e) {
+                handoffWriter.recycle(thumb);
+                thumb = null;   // the gallery will backfill it
+            }
+            byte[] exif = ExifWriter.buildApp1(wallMs, TimeZone.getDefault(),
+                SafeHerService.getLastFix());
+            EvidenceWriter.Buffer out = handoffWriter.obtain();
+            try {
+                new YuvImage(handoffNv21, ImageFormat.NV21, W, H, null)
+                    .compressToJpeg(new Rect(0, 0, W, H), HANDOFF_JPEG_QUALITY,
+                        ExifWriter.splice(out, exif));
+            } catch (Exception e) {
+                out.thumb = thumb;
+                handoffWriter.recycle(out);
+                throw e;
+            }
+            if (!handoffWriter.submit(out, "CAM_", label, ".jpg", thumb, wallMs)) {
+                throw new IllegalStateException("writer queue full");
+            }
+            handoffSaved++;
+            lastHandoffAt = now;
+            Log.d(TAG, "Hand-off photo queued: " + label);
+        } catch (Exception e) {
+            Log.e(TAG, "Hand-off save failed: " + e.getMessage());
+            handoffSaved = HANDOFF_FRAMES;
+        } finally {
+            proxy.close();
+            if (handoffSaved >= HANDOFF_FRAMES && !handoffDone) {
+                // Frames still queued behind the last one land here too; release once
+                handoffDone = true;
+                uiHandler.post(this::releaseCamera);
+                stopHandoffWriter();
+            }
+        }
+    }
+
+    /** Flush the hand-off photos. Analyzer thread. */
+    private void stopHandoffWriter() {
+        if (handoffWriter == null) return;
+        handoffWriter.stop();
+        Log.d(TAG, "Hand-off writer: " + handoffWriter.statsLine());
+        handoffWriter = null;
+    }
+
+    private void releaseCamera() {
+        if (cameraProvider != null) {
+            try { cameraProvider.unbindAll(); } catch (Exception ignored) {}
         }
     }
 
@@ -313,6 +698,10 @@ public class HandGestureService extends Service implements LifecycleOwner {
         ui.addFlags(Intent.FLAG_ACTIVITY_NEW_TASK | Intent.FLAG_ACTIVITY_CLEAR_TOP);
         startActivity(ui);
 
+        // The analyzer keeps running just long enough to hand off the first
+        // evidence frames (see handOffFrame), then releases the camera. The
+        // front camera then belongs to CameraEvidenceService, so the cover
+        // grammar cannot cancel this alarm; SosActivity and the widget can.
         uiHandler.postDelayed(this::stopSelf, 3000);
     }
 
@@ -342,10 +731,12 @@ public class HandGestureService extends Service implements LifecycleOwner {
         long secsLeft = active ? ((HOLD_MS - (progress * HOLD_MS / 100L)) / 1000 + 1) : 4;
         String title = active
             ? "☝ Finger detected! SOS in " + secsLeft + "s…"
-            : "☝ Gesture SOS watching…";
+            : coverTrigger ? "✋ Cover SOS watching…" : "☝ Gesture SOS watching…";
         String text = active
             ? "Hold steady — " + progress + "% — lower hand to cancel"
-            : "Point ONE finger at front camera for 4s → SOS triggers";
+            : coverTrigger
+                ? "Cover the top of the screen, uncover, cover again → SOS triggers"
+                : "Point ONE finger at front camera for 4s → SOS triggers";
 
         NotificationCompat.Builder b = new NotificationCompat.Builder(this, CHANNEL_ID)
             .setContentTitle(title)
@@ -0,0 +1,171 @@
+package com.safeher.app;
+
+/**
+ * LowLightStacker
+ *
+ * Night-time denoising for CameraEvidenceService: averages a short burst of
+ * NV21 frames into one. Averaging N frames cuts random sensor noise by
+ * about √N, which is what turns a black, speckled evidence photo into a
+ * readable one.
+ *
+ * Hand shake moves the frames relative to each other, so each frame is first
+ * aligned to the reference (the newest) with a global translation search:
+ * both are box-decimated by DECIMATE, every offset within ±SEARCH decimated
+ * pixels is scored by the sum of absolute differences on a sparse grid, and
+ * the best offset is applied at full resolution (chroma at half of it).
+ * Edges are clamped rather than masked, so every output pixel averages the
+ * same number of frames.
+ *
+ * Accumulators are plain int arrays allocated once for the frame size; no
+ * per-pixel objects or floating point. Plain Java, no Android classes; one
+ * instance per thread.
+ */
+public class LowLightStacker {
+
+    /** Mean luma (0-255) below which a scene counts as low light. */
+    public static final int LOW_LIGHT_LUMA = 45;
+
+    private static final int DECIMATE = 4;
+    private static final int SEARCH   = 6;     // decimated pixels, ±24 at full size
+    private static final int SAD_STEP = 2;     // grid step inside the decimated frame
+
+    private final int width, height;
+    private final int dw, dh;
+    private final int[] accY, accUV;
+    private final int[] refSmall, curSmall;
+    private final int[] lastDx, lastDy;        // per frame, for logs and the benchmark
+
+    public LowLightStacker(int width, int height, int maxFrames) {
+        this.width    = width;
+        this.height   = height;
+        this.dw       = width / DECIMATE;
+        this.dh       = height / DECIMATE;
+        this.accY     = new int[width * height];
+        this.accUV    = new int[YuvConverter.nv21Size(width, height) - width * height];
+        this.refSmall = new int[dw * dh];
+        this.curSmall = new int[dw * dh];
+        this.lastDx   = new int[maxFrames];
+        this.lastDy   = new int[maxFrames];
+    }
+
+    /** Mean luma of an NV21 frame, sampled every {@code step} pixels. */
+    public static int meanLuma(byte[] nv21, int w, int h, int step) {
+        long sum = 0;
+        int n = 0;
+        for (int y = step / 2; y < h; y += step) {
+            int row = y * w;
+            for (int x = step / 2; x < w; x += step) {
+                sum += nv21[row + x] & 0xFF;
+                n++;
+            }
+        }
+        return n > 0 ? (int) (sum / n) : 0;
+    }
+
+    /**
+     * Align frames[1..n-1] to frames[0] and write their average to {@code out}.
+     *
+     * @param out at least nv21Size(width, height) bytes; may not be one of the inputs
+     */
+    public void stack(byte[][] frames, int n, byte[] out) {
+        int ySize = width * height;
+        decimate(frames[0], refSmall);
+        for (int i = 0; i < ySize; i++) accY[i] = frames[0][i] & 0xFF;
+        for (int i = 0; i < accUV.length; i++) accUV[i] = frames[0][ySize + i] & 0xFF;
+        lastDx[0] = 0;
+        lastDy[0] = 0;
+
+        for (int f = 1; f < n; f++) {
+            decimate(frames[f], curSmall);
+            long best = Long.MAX_VALUE;
+            int bx = 0, by = 0;
+            for (int dy = -SEARCH; dy <= SEARCH; dy++) {
+                for (int dx = -SEARCH; dx <= SEARCH; dx++) {
+                    long sad = sad(dx, dy, best);
+                    // Prefer the smaller shift on ties: static scenes stay put
+                    if (sad < best || (sad == best && Math.abs(dx) + Math.abs(dy)
+                            < Math.abs(bx) + Math.abs(by))) {
+                        best = sad;
+                        bx = dx;
+                        by = dy;
+                    }
+                }
+            }
+            lastDx[f] = bx * DECIMATE;
+            lastDy[f] = by * DECIMATE;
+            accumulate(frames[f], lastDx[f], lastDy[f]);
+        }
+
+        int half = n / 2;
+        for (int i = 0; i < ySize; i++) out[i] = (byte) ((accY[i] + half) / n);
+        for (int i = 0; i < accUV.length; i++) out[ySize + i] = (byte) ((accUV[i] + half) / n);
+    }
+
+    /** Full-resolution x offset found for frame {@code f} by the last stack(). */
+    public int getShiftX(int f) { return lastDx[f]; }
+
+    public int getShiftY(int f) { return lastDy[f]; }
+
+    // ── Alignment ─────────────────────────────────────────────────────────────
+
+    private void decimate(byte[] src, int[] dst) {
+        for (int y = 0; y < dh; y++) {
+            for (int x = 0; x < dw; x++) {
+                int sum = 0;
+                for (int yy = 0; yy < DECIMATE; yy++) {
+                    int a = (y * DECIMATE + yy) * width + x * DECIMATE;
+                    for (int xx = 0; xx < DECIMATE; xx++) sum += src[a + xx] & 0xFF;
+                }
+                dst[y * dw + x] = sum;
+            }
+        }
+    }
+
+    /**
+     * SAD between ref(x, y) and cur(x + dx, y + dy) over the interior grid.
+     * Content at (x, y) in the reference sits at (x + dx, y + dy) in cur.
+     */
+    private long sad(int dx, int dy, long bound) {
+        long s = 0;
+        for (int y = SEARCH; y < dh - SEARCH; y += SAD_STEP) {
+            int r = y * dw, c = (y + dy) * dw + dx;
+            for (int x = SEARCH; x < dw - SEARCH; x += SAD_STEP) {
+                s += Math.abs(refSmall[r + x] - curSmall[c + x]);
+            }
+            if (s >= bound) return s;   // already worse than the best offset
+        }
+        return s;
+    }
+
+    private void accumulate(byte[] src, int dx, int dy) {
+        for (int y = 0; y < height; y++) {
+            int sy = clamp(y + dy, height - 1);
+            addRow(src, sy * width, accY, y * width, width, dx, 1);
+        }
+        int cw = (width + 1) / 2, ch = (height + 1) / 2;
+        int cdx = dx / 2, cdy = dy / 2;
+        int uv = width * height;
+        for (int y = 0; y < ch; y++) {
+            int sy = clamp(y + cdy, ch - 1);
+            addRow(src, uv + sy * cw * 2, accUV, y * cw * 2, cw, cdx, 2);
+        }
+    }
+
+    /**
+     * acc[dst + i] += src[srcRow + clamp(x + dx)] for each of {@code w}
+     * pixels of {@code pix} interleaved bytes.
+     */
+    private static void addRow(byte[] src, int srcRow, int[] acc, int dst,
+                               int w, int dx, int pix) {
+        int x0 = Math.max(0, -dx), x1 = Math.min(w, w - dx);   // unclamped span
+        for (int x = 0; x < x0; x++)
+            for (int p = 0; p < pix; p++) acc[dst + x * pix + p] += src[srcRow + p] & 0xFF;
+        int s = srcRow + (x0 + dx) * pix, d = dst + x0 * pix;
+        for (int i = 0, len = (x1 - x0) * pix; i < len; i++) acc[d + i] += src[s + i] & 0xFF;
+        int last = srcRow + (w - 1) * pix;
+        for (int x = Math.max(x1, x0); x < w; x++)
+            for (int p = 0; p < pix; p++) acc[dst + x * pix + p] += src[last + p] & 0xFF;
+    }
+
+    private static int clamp(int v, int max) { return v < 0 ? 0 : (v > max ? max : v); }
+}
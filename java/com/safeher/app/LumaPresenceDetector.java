@@ -0,0 +1,74 @@
+package com.safeher.app;
+
+import java.nio.ByteBuffer;
+
+/**
+ * LumaPresenceDetector
+ *
+ * The original detector: a hand/finger held close to the front camera makes
+ * the upper-centre zone noticeably brighter than the rest of the frame.
+ *
+ * Zone brightness is judged by its percentile rank in the frame's luma
+ * histogram rather than as a ratio of raw averages: auto-exposure swings
+ * shift the whole distribution, so the rank holds steady where the ratio
+ * flickers. Without a histogram there is nothing to rank against, so the
+ * frame counts as empty.
+ */
+public class LumaPresenceDetector implements PresenceDetector {
+
+    // Zone average must be brighter than this fraction of the frame's samples
+    public static final float PRESENCE_PERCENTILE = 0.80f;
+
+    // Minimum absolute brightness of upper zone (avoids triggering in pitch dark)
+    public static final int   MIN_ZONE_LUMA  = 40;
+
+    private final float presencePercentile;
+    private final int   minZoneLuma;
+
+    private float zoneAvg = 0f;
+    private float zonePercentile = 0f;
+
+    public LumaPresenceDetector() {
+        this(PRESENCE_PERCENTILE, MIN_ZONE_LUMA);
+    }
+
+    public LumaPresenceDetector(float presencePercentile, int minZoneLuma) {
+        this.presencePercentile = presencePercentile;
+        this.minZoneLuma        = minZoneLuma;
+    }
+
+    @Override
+    public boolean detect(GestureFrame f) {
+        ByteBuffer yBuf = f.y;
+        int W = f.width, H = f.height, step = f.step;
+        int limit = yBuf.limit();
+
+        // Zone: middle half horizontally, top 45% vertically
+        int zX0 = W / 4,   zX1 = 3 * W / 4;
+        int zY0 = 0,        zY1 = (int)(H * 0.45f);
+
+        long zoneSum = 0; int zoneCnt = 0;
+        for (int y = zY0; y < zY1; y += step) {
+            for (int x = zX0; x < zX1; x += step) {
+                int idx = y * f.rowStride + x * f.pixStride;
+                if (idx >= 0 && idx < limit) {
+                    zoneSum += yBuf.get(idx) & 0xFF;
+                    zoneCnt++;
+                }
+            }
+        }
+        zoneAvg = zoneCnt > 0 ? (float) zoneSum / zoneCnt : 0f;
+
+        // Also require minimum absolute brightness (not pitch dark).
+        if (zoneAvg <= minZoneLuma) return false;
+        if (f.histCount <= 0) return false;
+        zonePercentile = f.percentileOf(zoneAvg);
+        return zonePercentile >= presencePercentile;
+    }
+
+    @Override
+    public float getZoneAvg() { return zoneAvg; }
+
+    /** Percentile rank (0..1) of the zone in the last histogram-backed frame. */
+    public float getZonePercentile() { return zonePercentile; }
+}
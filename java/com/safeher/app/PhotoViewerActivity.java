@@ -2,6 +2,7 @@ package com.safeher.app;
 
 import android.app.AlertDialog;
 import android.graphics.BitmapFactory;
+import android.media.ExifInterface;
 import android.os.Bundle;
 import android.widget.ImageView;
 import android.widget.TextView;
@@ -9,6 +10,7 @@ import android.widget.TextView;
 import androidx.appcompat.app.AppCompatActivity;
 
 import java.io.File;
+import java.util.Locale;
 
 public class PhotoViewerActivity extends AppCompatActivity {
 
@@ -29,7 +31,7 @@ public class PhotoViewerActivity extends AppCompatActivity {
         TextView  tvDelete = findViewById(R.id.tvDelete);
 
         ivFull.setImageBitmap(BitmapFactory.decodeFile(path));
-        tvName.setText(file.getName());
+        tvName.setText(file.getName() + describeExif(path));
 
         tvBack.setOnClickListener(v -> finish());
 
@@ -39,6 +41,7 @@ public class PhotoViewerActivity extends AppCompatActivity {
                 .setMessage(file.getName())
                 .setPositiveButton("Delete", (d, w) -> {
                     file.delete();
+                    EvidenceThumbs.delete(file);
                     setResult(RESULT_OK);
                     finish();
                 })
@@ -46,4 +49,21 @@ public class PhotoViewerActivity extends AppCompatActivity {
                 .show()
         );
     }
+
+    /** Capture time and location from the photo's EXIF, or "" if it has none. */
+    private static String describeExif(String path) {
+        try {
+            ExifInterface exif = new ExifInterface(path);
+            StringBuilder sb = new StringBuilder();
+            String dt = exif.getAttribute(ExifInterface.TAG_DATETIME_ORIGINAL);
+            if (dt != null) sb.append("\n").append(dt);
+            float[] ll = new float[2];
+            if (exif.getLatLong(ll)) {
+                sb.append(String.format(Locale.US, "\n📍 %.5f, %.5f", ll[0], ll[1]));
+            }
+            return sb.toString();
+        } catch (Exception e) {
+            return "";
+        }
+    }
 }
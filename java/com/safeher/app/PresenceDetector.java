@@ -0,0 +1,30 @@
+package com.safeher.app;
+
+/**
+ * PresenceDetector
+ *
+ * Decides whether the gesture is visible in one frame. Implementations are
+ * plugged into GestureFrameAnalyzer, which runs the shared full-frame pass
+ * and motion gate first and only calls detect() for frames that changed.
+ *
+ * Called on a single analyzer thread; implementations may keep scratch state.
+ */
+public interface PresenceDetector {
+
+    String MODE_LUMA = "luma";
+    String MODE_SKIN = "skin";
+    String MODE_FINGER = "finger";
+
+    /** @return true if the gesture zone looks occupied in this frame */
+    boolean detect(GestureFrame frame);
+
+    /** Average luma of the gesture zone in the last detected frame (debug). */
+    float getZoneAvg();
+
+    /** Builds the detector for a stored mode string; unknown modes fall back to luma. */
+    static PresenceDetector create(String mode) {
+        if (MODE_SKIN.equals(mode))   return new SkinTonePresenceDetector(new LumaPresenceDetector());
+        if (MODE_FINGER.equals(mode)) return new FingerBlobDetector();
+        return new LumaPresenceDetector();
+    }
+}
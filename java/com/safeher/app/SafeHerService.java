@@ -5,6 +5,7 @@ import android.app.NotificationChannel;
 import android.app.NotificationManager;
 import android.app.PendingIntent;
 import android.app.Service;
+import android.content.Context;
 import android.content.Intent;
 import android.content.SharedPreferences;
 import android.database.ContentObserver;
@@ -81,6 +82,41 @@ public class SafeHerService extends Service {
     // ── Location ──────────────────────────────────────────────
     private FusedLocationProviderClient fusedLocation;
 
+    // Latest fix, read by the evidence writers for EXIF GPS tags
+    private static volatile Location lastFix = null;
+
+    /**
+     * Refresh lastFix: the cached fix right away, then a current one. Called
+     * when protection starts and when any evidence session (SOS, snapshot,
+     * gesture command) starts, so photos outside an SOS carry GPS too.
+     */
+    public static void refreshFix(Context ctx) {
+        try {
+            FusedLocationProviderClient client =
+                LocationServices.getFusedLocationProviderClient(ctx);
+            client.getLastLocation().addOnSuccessListener(location -> {
+                Location prev = lastFix;
+                if (location != null && (prev == null || location.getTime() > prev.getTime()))
+                    lastFix = location;
+            });
+            client.getCurrentLocation(Priority.PRIORITY_HIGH_ACCURACY, null)
+                .addOnSuccessListener(location -> {
+                    if (location != null) lastFix = location;
+                });
+        } catch (SecurityException e) {
+            Log.w(TAG, "No location permission, photos go without GPS");
+        }
+    }
+
+    /** Latest known location as an EXIF fix, or null. */
+    public static ExifWriter.Fix getLastFix() {
+        Location l = lastFix;
+        if (l == null) return null;
+        return new ExifWriter.Fix(l.getLatitude(), l.getLongitude(),
+            l.hasAltitude() ? l.getAltitude() : Double.NaN,
+            l.hasAccuracy() ? l.getAccuracy() : 0f, l.getTime());
+    }
+
     // ── Scream Detection ──────────────────────────────────────
     private static final int    SAMPLE_RATE              = 44100;
     private static final int    CHANNEL_CONFIG           = AudioFormat.CHANNEL_IN_MONO;
@@ -108,7 +144,9 @@ public class SafeHerService extends Service {
         startForeground(NOTIF_ID, buildProtectionNotification());
         audioManager  = (AudioManager) getSystemService(AUDIO_SERVICE);
         fusedLocation = LocationServices.getFusedLocationProviderClient(this);
+        refreshFix(this);
         startVolumeObserver();
+        CameraSetup.prewarm(this);   // so an SOS does not pay for camera enumeration
 
         SharedPreferences prefs = getSharedPreferences("SaveSouls", MODE_PRIVATE);
         if (prefs.getBoolean(PREF_SCREAM_ENABLED, false)) startScreamDetection();
@@ -244,18 +282,18 @@ public class SafeHerService extends Service {
         isAlarmActive = true;
         Log.d(TAG, "SOS TRIGGERED");
 
+        // 1. Start camera evidence capture first: it has the longest warm-up
+        startCameraEvidence();
+
         vibratePhone();
         startAlarm();
 
-        // 1. Get location and send notifications + SMS
+        // 2. Get location and send notifications + SMS
         sendLocationAlert();
 
-        // 2. Start voice recording after 300ms (let scream detect release mic first)
+        // 3. Start voice recording after 300ms (let scream detect release mic first)
         new Handler(Looper.getMainLooper()).postDelayed(this::startVoiceRecording, 300);
 
-        // 3. Start camera evidence capture
-        startCameraEvidence();
-
         // 4. Open SOS screen
         Intent open = new Intent(this, SosActivity.class);
         open.addFlags(Intent.FLAG_ACTIVITY_NEW_TASK | Intent.FLAG_ACTIVITY_CLEAR_TOP);
@@ -266,8 +304,7 @@ public class SafeHerService extends Service {
 
     private void startCameraEvidence() {
         try {
-            Intent camIntent = new Intent(this, CameraEvidenceService.class);
-            startService(camIntent);
+            startService(CameraEvidenceService.startIntent(this));
             Log.d(TAG, "Camera evidence service started");
         } catch (Exception e) {
             Log.e(TAG, "Camera start failed: " + e.getMessage());
@@ -278,11 +315,16 @@ public class SafeHerService extends Service {
 
     private void sendLocationAlert() {
         try {
+            // Cached fix first, so early evidence photos already carry a location
+            fusedLocation.getLastLocation().addOnSuccessListener(location -> {
+                if (location != null && lastFix == null) lastFix = location;
+            });
             fusedLocation.getCurrentLocation(Priority.PRIORITY_HIGH_ACCURACY, null)
                 .addOnSuccessListener(location -> {
                     String locationText;
                     String mapsUrl;
                     if (location != null) {
+                        lastFix = location;
                         double lat = location.getLatitude();
                         double lng = location.getLongitude();
                         mapsUrl      = "https://maps.google.com/?q=" + lat + "," + lng;
@@ -521,6 +563,11 @@ public class SafeHerService extends Service {
         sos.setAction(ACTION_TRIGGER_SOS);
         PendingIntent sosPi = PendingIntent.getService(this, 1, sos, PendingIntent.FLAG_IMMUTABLE);
 
+        Intent snap = new Intent(this, SnapshotService.class);
+        snap.setAction(SnapshotService.ACTION_SNAPSHOT);
+        PendingIntent snapPi = PendingIntent.getForegroundService(this, 2, snap,
+            PendingIntent.FLAG_IMMUTABLE);
+
         String screamStatus = isScreamDetectActive ? " | 🎙️ Scream ON" : "";
         return new NotificationCompat.Builder(this, CHANNEL_ID)
             .setContentTitle("SaveSouls is protecting you 🛡️")
@@ -528,6 +575,7 @@ public class SafeHerService extends Service {
             .setSmallIcon(android.R.drawable.ic_dialog_alert)
             .setContentIntent(tapPi)
             .addAction(android.R.drawable.ic_dialog_alert, "🆘 SOS NOW", sosPi)
+            .addAction(android.R.drawable.ic_menu_camera, "📷 SNAPSHOT", snapPi)
             .setOngoing(true)
             .setPriority(NotificationCompat.PRIORITY_LOW)
             .build();
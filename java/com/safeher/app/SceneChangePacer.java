@@ -0,0 +1,150 @@
+package com.safeher.app;
+
+import java.nio.ByteBuffer;
+
+/**
+ * SceneChangePacer
+ *
+ * Spends CameraEvidenceService's photo budget on distinct scenes. Each
+ * frame is reduced to a 64-bit difference hash (dHash: 9×8 block means,
+ * one bit per horizontal neighbour comparison) and compared with the last
+ * kept photo by Hamming distance.
+ *
+ *   distance ≤ DUPLICATE_BITS  →  skip the photo, back the interval off
+ *   distance ≥ CHANGE_BITS     →  keep it, shorten the interval to the minimum
+ *   otherwise                  →  keep it, return to the base interval
+ *
+ * The live stream is hashed too, so a big change between photos pulls the
+ * next capture in instead of waiting out a long interval. The minimum
+ * interval grows as the budget is used up, so constant motion (walking,
+ * a bus) cannot burn it in the first minute. A duplicate is still kept
+ * every KEEPALIVE_MS as proof the camera was running.
+ *
+ * Plain Java, no Android classes. Called from one thread (the camera
+ * thread); only getIntervalMs() may be read from others.
+ */
+public class SceneChangePacer {
+
+    public static final int  DUPLICATE_BITS = 5;    // of 64
+    public static final int  CHANGE_BITS    = 14;
+    private static final long MIN_INTERVAL_MS = 1500;
+    private static final long MAX_INTERVAL_MS = 15_000;
+    private static final long KEEPALIVE_MS    = 30_000;
+
+    private static final int GRID_W = 9, GRID_H = 8;
+    private static final int STEP   = 4;   // pixel decimation inside a cell
+
+    private final long baseMs;
+    private volatile long intervalMs;   // read by any thread
+    private long    keptHash;
+    private boolean hasKept = false;
+    private long    keptAt;
+    private boolean pullRequested = false;
+    private int     kept, skipped, pulls;
+    private int     lastDistance = -1;
+
+    public SceneChangePacer(long baseIntervalMs) {
+        this.baseMs     = baseIntervalMs;
+        this.intervalMs = baseIntervalMs;
+    }
+
+    // ── Hash ──────────────────────────────────────────────────────────────────
+
+    /** dHash of a luma plane; cell means are taken over every STEP-th pixel. */
+    public static long dHash(ByteBuffer y, int w, int h, int rowStride, int pixStride) {
+        int[] cell = new int[GRID_W * GRID_H];
+        for (int gy = 0; gy < GRID_H; gy++) {
+            int y0 = gy * h / GRID_H, y1 = (gy + 1) * h / GRID_H;
+            for (int gx = 0; gx < GRID_W; gx++) {
+                int x0 = gx * w / GRID_W, x1 = (gx + 1) * w / GRID_W;
+                int sum = 0, n = 0;
+                for (int yy = y0 + STEP / 2; yy < y1; yy += STEP) {
+                    int row = yy * rowStride;
+                    for (int xx = x0 + STEP / 2; xx < x1; xx += STEP) {
+                        sum += y.get(row + xx * pixStride) & 0xFF;
+                        n++;
+                    }
+                }
+                cell[gy * GRID_W + gx] = n > 0 ? sum / n : 0;
+            }
+        }
+        long hash = 0;
+        for (int gy = 0; gy < GRID_H; gy++) {
+            for (int gx = 0; gx < GRID_W - 1; gx++) {
+                hash <<= 1;
+                if (cell[gy * GRID_W + gx] > cell[gy * GRID_W + gx + 1]) hash |= 1;
+            }
+        }
+        return hash;
+    }
+
+    /** dHash of a packed luma plane (e.g. the Y part of an NV21 frame). */
+    public static long dHash(byte[] y, int w, int h) {
+        return dHash(ByteBuffer.wrap(y), w, h, w, 1);
+    }
+
+    public static int distance(long a, long b) { return Long.bitCount(a ^ b); }
+
+    // ── Pacing ────────────────────────────────────────────────────────────────
+
+    /**
+     * Decide whether the frame about to be saved is worth a photo, and
+     * adapt the interval. A kept frame becomes the new reference.
+     */
+    public boolean shouldKeep(long hash, long nowMs, int used, int budget) {
+        pullRequested = false;
+        if (hasKept) {
+            int d = distance(hash, keptHash);
+            lastDistance = d;
+            if (d <= DUPLICATE_BITS && nowMs - keptAt < KEEPALIVE_MS) {
+                skipped++;
+                intervalMs = Math.min(MAX_INTERVAL_MS, intervalMs * 3 / 2);
+                return false;
+            }
+            intervalMs = d >= CHANGE_BITS
+                ? minIntervalMs(used, budget)
+                : Math.max(baseMs, minIntervalMs(used, budget));
+        }
+        hasKept  = true;
+        keptHash = hash;
+        keptAt   = nowMs;
+        kept++;
+        return true;
+    }
+
+    /**
+     * Check a live frame between photos.
+     *
+     * @return true once per change if the next capture should be pulled in now
+     */
+    public boolean onLiveFrame(long hash, long nowMs, int used, int budget) {
+        if (!hasKept || pullRequested) return false;
+        if (nowMs - keptAt < minIntervalMs(used, budget)) return false;
+        if (distance(hash, keptHash) < CHANGE_BITS) return false;
+        pullRequested = true;
+        pulls++;
+        return true;
+    }
+
+    /** Delay until the next scheduled capture. */
+    public long getIntervalMs() { return intervalMs; }
+
+    public int getKept()         { return kept; }
+
+    public int getSkipped()      { return skipped; }
+
+    public int getPulls()        { return pulls; }
+
+    /** Hamming distance of the last frame checked by shouldKeep(), -1 before. */
+    public int getLastDistance() { return lastDistance; }
+
+    private static long minIntervalMs(int used, int budget) {
+        // 1× the minimum with the whole budget left, 3× when it is nearly gone
+        return MIN_INTERVAL_MS + MIN_INTERVAL_MS * 2 * used / Math.max(1, budget);
+    }
+
+    @Override public String toString() {
+        return "kept=" + kept + " skipped=" + skipped + " pulled=" + pulls
+            + " interval=" + intervalMs + "ms";
+    }
+}
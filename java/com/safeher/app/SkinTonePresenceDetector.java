@@ -0,0 +1,83 @@
+package com.safeher.app;
+
+import java.nio.ByteBuffer;
+
+/**
+ * SkinTonePresenceDetector
+ *
+ * Luma detector plus a chroma check, so a ceiling light or white wall in the
+ * upper zone no longer counts as a hand. The U/V planes are sampled on the
+ * same decimated grid as the luma zone and classified through a 64K-entry
+ * lookup table indexed by (U << 8) | V — one array read per sample, no
+ * per-pixel floating point.
+ *
+ * Only frames that already pass the luma percentile pay for the chroma pass.
+ * Frames without chroma (recorded Y-only sequences) fall back to luma.
+ */
+public class SkinTonePresenceDetector implements PresenceDetector {
+
+    // Share of zone samples that must be skin-coloured, in per-mille
+    private static final int MIN_SKIN_PERMILLE = 350;
+
+    // Skin cluster in YCbCr (Chai & Ngan): 77 ≤ Cb ≤ 127, 133 ≤ Cr ≤ 173
+    private static final int CB_MIN = 77,  CB_MAX = 127;
+    private static final int CR_MIN = 133, CR_MAX = 173;
+
+    /** SKIN[(u << 8) | v] — built once, 64 KB. */
+    private static final boolean[] SKIN = buildTable();
+
+    private static boolean[] buildTable() {
+        boolean[] t = new boolean[256 * 256];
+        for (int u = CB_MIN; u <= CB_MAX; u++)
+            for (int v = CR_MIN; v <= CR_MAX; v++)
+                t[(u << 8) | v] = true;
+        return t;
+    }
+
+    private final LumaPresenceDetector luma;
+
+    private int skinPermille = 0;
+
+    public SkinTonePresenceDetector(LumaPresenceDetector luma) {
+        this.luma = luma;
+    }
+
+    @Override
+    public boolean detect(GestureFrame f) {
+        boolean bright = luma.detect(f);
+        if (!bright || !f.hasChroma()) {
+            skinPermille = 0;
+            return bright;
+        }
+
+        ByteBuffer uBuf = f.u, vBuf = f.v;
+        int uLimit = uBuf.limit(), vLimit = vBuf.limit();
+        int W = f.width, H = f.height, step = f.step;
+
+        // Same zone as the luma detector; chroma is subsampled 2×2
+        int zX0 = W / 4,   zX1 = 3 * W / 4;
+        int zY0 = 0,        zY1 = (int)(H * 0.45f);
+
+        int skin = 0, cnt = 0;
+        for (int y = zY0; y < zY1; y += step) {
+            int row = (y >> 1) * f.uvRowStride;
+            for (int x = zX0; x < zX1; x += step) {
+                int idx = row + (x >> 1) * f.uvPixStride;
+                if (idx < uLimit && idx < vLimit) {
+                    int u = uBuf.get(idx) & 0xFF;
+                    int v = vBuf.get(idx) & 0xFF;
+                    if (SKIN[(u << 8) | v]) skin++;
+                    cnt++;
+                }
+            }
+        }
+        skinPermille = cnt > 0 ? skin * 1000 / cnt : 0;
+        return skinPermille >= MIN_SKIN_PERMILLE;
+    }
+
+    @Override
+    public float getZoneAvg() { return luma.getZoneAvg(); }
+
+    /** Skin-coloured share of the zone in the last frame that reached the chroma pass. */
+    public int getSkinPermille() { return skinPermille; }
+}
@@ -0,0 +1,149 @@
+package com.safeher.app;
+
+import android.app.NotificationChannel;
+import android.app.NotificationManager;
+import android.app.Service;
+import android.content.Context;
+import android.content.Intent;
+import android.media.MediaRecorder;
+import android.os.Handler;
+import android.os.IBinder;
+import android.os.Looper;
+import android.util.Log;
+
+import androidx.core.app.NotificationCompat;
+
+import java.io.File;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.Locale;
+
+/**
+ * SnapshotService
+ *
+ * Silent evidence without an SOS, e.g. when being harassed on a bus: a few
+ * photos (CameraEvidenceService in snapshot mode) plus AUDIO_MS of audio as
+ * SNAP_<ts>.m4a. No alarm, vibration, SMS or SosActivity.
+ *
+ * Started from the SosWidget "Snapshot" button and the protection
+ * notification. start() launches the camera before this service, since
+ * opening the camera is the slow part and nothing else needs to wait for
+ * it; CameraSetup is pre-warmed by SafeHerService and the first photo is
+ * the first streamed frame, so it lands a few hundred ms after the tap
+ * (CameraEvidenceService logs the figure and warns past its target).
+ *
+ * During an SOS everything is already running, so a snapshot only saves
+ * the frame of that moment.
+ */
+public class SnapshotService extends Service {
+
+    private static final String TAG = "SnapshotService";
+
+    public  static final String ACTION_SNAPSHOT = "com.safeher.app.SNAPSHOT";
+    private static final String EXTRA_CAMERA_STARTED = "camera_started";
+
+    private static final long   AUDIO_MS   = 30_000;
+    private static final String CHANNEL_ID = "snapshot_channel";
+    private static final int    NOTIF_ID   = 1006;
+
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private MediaRecorder recorder;
+
+    /** Take a snapshot: camera first, then audio. */
+    public static void start(Context ctx) {
+        if (sosActive()) {
+            // Full SOS running: just keep the frame of this moment
+            ctx.startService(CameraEvidenceService.startIntent(ctx));
+            return;
+        }
+        ctx.startForegroundService(CameraEvidenceService.snapshotIntent(ctx));
+        ctx.startForegroundService(new Intent(ctx, SnapshotService.class)
+            .setAction(ACTION_SNAPSHOT)
+            .putExtra(EXTRA_CAMERA_STARTED, true));
+    }
+
+    private static boolean sosActive() {
+        return SosService.isAlarmActive || SafeHerService.isAlarmActive;
+    }
+
+    @Override
+    public void onCreate() {
+        super.onCreate();
+        NotificationChannel ch = new NotificationChannel(
+            CHANNEL_ID, "Silent Snapshot", NotificationManager.IMPORTANCE_LOW);
+        ch.setDescription("Silent photo and audio evidence");
+        ch.setSound(null, null);
+        getSystemService(NotificationManager.class).createNotificationChannel(ch);
+        startForeground(NOTIF_ID, new NotificationCompat.Builder(this, CHANNEL_ID)
+            .setContentTitle("SaveSouls — Snapshot")
+            .setContentText("🎙️ Recording " + AUDIO_MS / 1000 + "s of audio…")
+            .setSmallIcon(android.R.drawable.ic_btn_speak_now)
+            .setSilent(true)
+            .setOngoing(true)
+            .build());
+    }
+
+    @Override
+    public int onStartCommand(Intent intent, int flags, int startId) {
+        // From the notification action the camera is not started yet
+        if (intent != null && !intent.getBooleanExtra(EXTRA_CAMERA_STARTED, false)) {
+            if (sosActive()) startService(CameraEvidenceService.startIntent(this));
+            else startForegroundService(CameraEvidenceService.snapshotIntent(this));
+        }
+        if (sosActive()) {
+            // The SOS is already recording audio
+            if (recorder == null) stopSelf();
+            return START_NOT_STICKY;
+        }
+        // Tapped again while recording: keep going for another AUDIO_MS
+        if (recorder == null && !startRecording()) {
+            stopSelf();
+            return START_NOT_STICKY;
+        }
+        mainHandler.removeCallbacksAndMessages(null);
+        mainHandler.postDelayed(this::stopSelf, AUDIO_MS);
+        return START_NOT_STICKY;
+    }
+
+    private boolean startRecording() {
+        try {
+            String ts = new SimpleDateFormat("yyyyMMdd_HHmmss", Locale.US).format(new Date());
+            File dir  = new File(getExternalFilesDir(null), "SaveSouls_Evidence");
+            if (!dir.exists()) dir.mkdirs();
+            File out  = new File(dir, "SNAP_" + ts + ".m4a");
+
+            recorder = new MediaRecorder();
+            recorder.setAudioSource(MediaRecorder.AudioSource.MIC);
+            recorder.setOutputFormat(MediaRecorder.OutputFormat.MPEG_4);
+            recorder.setAudioEncoder(MediaRecorder.AudioEncoder.AAC);
+            recorder.setAudioSamplingRate(44100);
+            recorder.setAudioEncodingBitRate(96000);
+            recorder.setOutputFile(out.getAbsolutePath());
+            recorder.prepare();
+            recorder.start();
+            Log.d(TAG, "Snapshot audio started: " + out.getName());
+            return true;
+        } catch (Exception e) {
+            // Mic may be held by scream detection or a call; photos still go ahead
+            Log.e(TAG, "Snapshot audio failed: " + e.getMessage());
+            if (recorder != null) { recorder.release(); recorder = null; }
+            return false;
+        }
+    }
+
+    @Override
+    public void onDestroy() {
+        super.onDestroy();
+        mainHandler.removeCallbacksAndMessages(null);
+        try {
+            if (recorder != null) {
+                recorder.stop();
+                recorder.release();
+                recorder = null;
+                Log.d(TAG, "Snapshot audio saved");
+            }
+        } catch (Exception ignored) {}
+    }
+
+    @Override public IBinder onBind(Intent intent) { return null; }
+}
@@ -58,6 +58,13 @@ public class SosActivity extends AppCompatActivity implements SensorEventListene
     private int shakeCount = 0;
     private boolean shakeEnabled = true;
 
+    // Evidence mode choices, cycled by tapping the Evidence Mode card
+    private static final String[] EVIDENCE_MODES  = {
+        CameraEvidenceService.MODE_PHOTO, CameraEvidenceService.MODE_VIDEO,
+        CameraEvidenceService.MODE_BOTH };
+    private static final String[] EVIDENCE_LABELS = { "Photos", "Video", "Photos + video" };
+    private TextView tvEvidenceMode;
+
     private CountDownTimer countDownTimer;
     private boolean isCounting = false;
 
@@ -123,13 +130,18 @@ public class SosActivity extends AppCompatActivity implements SensorEventListene
         });
         rvPhotos.setLayoutManager(new GridLayoutManager(this, 3));
         rvPhotos.setAdapter(photoAdapter);
+        photoAdapter.backfillThumbs(
+            new java.io.File(getExternalFilesDir(null), "SaveSouls_Evidence"));
 
         tvDeleteAll.setOnClickListener(v ->
             new AlertDialog.Builder(this)
                 .setTitle("Delete all evidence?")
                 .setMessage("This will permanently remove all " + photoList.size() + " photos.")
                 .setPositiveButton("Delete all", (d, w) -> {
-                    for (java.io.File f : photoList) f.delete();
+                    for (java.io.File f : photoList) {
+                        f.delete();
+                        EvidenceThumbs.delete(f);
+                    }
                     refreshGallery();
                 })
                 .setNegativeButton("Cancel", null)
@@ -168,6 +180,11 @@ public class SosActivity extends AppCompatActivity implements SensorEventListene
                 : "Shake detection is OFF");
         });
 
+        tvEvidenceMode = findViewById(R.id.tvEvidenceMode);
+        showEvidenceMode(getSharedPreferences("SaveSouls", MODE_PRIVATE)
+            .getString(CameraEvidenceService.PREF_EVIDENCE_MODE, CameraEvidenceService.MODE_PHOTO));
+        findViewById(R.id.cardEvidenceMode).setOnClickListener(v -> cycleEvidenceMode());
+
         btnSos.setOnClickListener(v -> startCountdown());
         btnCancel.setOnClickListener(v -> cancelSOS());
 
@@ -186,6 +203,22 @@ public class SosActivity extends AppCompatActivity implements SensorEventListene
         refreshHandler.post(refreshLoop);
     }
 
+    private void cycleEvidenceMode() {
+        SharedPreferences prefs = getSharedPreferences("SaveSouls", MODE_PRIVATE);
+        String current = prefs.getString(CameraEvidenceService.PREF_EVIDENCE_MODE,
+            CameraEvidenceService.MODE_PHOTO);
+        int i = 0;
+        while (i < EVIDENCE_MODES.length && !EVIDENCE_MODES[i].equals(current)) i++;
+        String next = EVIDENCE_MODES[(i + 1) % EVIDENCE_MODES.length];
+        prefs.edit().putString(CameraEvidenceService.PREF_EVIDENCE_MODE, next).apply();
+        showEvidenceMode(next);
+    }
+
+    private void showEvidenceMode(String mode) {
+        for (int i = 0; i < EVIDENCE_MODES.length; i++)
+            if (EVIDENCE_MODES[i].equals(mode)) tvEvidenceMode.setText(EVIDENCE_LABELS[i]);
+    }
+
     private final Runnable refreshLoop = new Runnable() {
         @Override public void run() {
             refreshAlarmUI();
@@ -381,6 +414,8 @@ public class SosActivity extends AppCompatActivity implements SensorEventListene
                 new IntentFilter(CameraEvidenceService.ACTION_PHOTO_TAKEN),
                 Context.RECEIVER_NOT_EXPORTED);
         refreshGallery();
+        // Incidents whose timelapse could not start from the background
+        TimelapseService.resumePending(this);
 
         // Refresh gesture badge
         android.widget.TextView tvGestureBadge = findViewById(R.id.tvGestureBadge);
@@ -150,11 +150,8 @@ public class SosService extends Service {
         // 5b. Refresh widget so it shows alarm-active state
         SosWidget.forceRefresh(this);
 
-        // 6. Start silent camera evidence collection
-        if (!CameraEvidenceService.isRunning) {
-            Intent camIntent = new Intent(this, CameraEvidenceService.class);
-            startForegroundService(camIntent);
-        }
+        // 6. Start silent camera evidence collection (upgrades a running snapshot)
+        startForegroundService(CameraEvidenceService.startIntent(this));
 
         // 7. Auto-stop alarm after 5 minutes
         alarmHandler.postDelayed(this::stopAlarmAndRecording, ALARM_DURATION_MS);
@@ -14,6 +14,7 @@ public class SosWidget extends AppWidgetProvider {
     public static final String ACTION_WIDGET_SOS     = "com.safeher.app.WIDGET_SOS";
     public static final String ACTION_WIDGET_STOP    = "com.safeher.app.WIDGET_STOP";
     public static final String ACTION_WIDGET_REFRESH = "com.safeher.app.WIDGET_REFRESH";
+    public static final String ACTION_WIDGET_SNAP    = "com.safeher.app.WIDGET_SNAP";
 
     @Override
     public void onUpdate(Context ctx, AppWidgetManager mgr, int[] ids) {
@@ -34,6 +35,10 @@ public class SosWidget extends AppWidgetProvider {
             else
                 ctx.startService(sosSvc);
 
+        } else if (ACTION_WIDGET_SNAP.equals(action)) {
+            // Silent photos + audio: no alarm, SMS or screen
+            SnapshotService.start(ctx);
+
         } else if (ACTION_WIDGET_STOP.equals(action)) {
             Intent svc = new Intent(ctx, SosService.class);
             svc.setAction(SosService.ACTION_STOP_ALARM);
@@ -83,6 +88,13 @@ public class SosWidget extends AppWidgetProvider {
                 PendingIntent.FLAG_MUTABLE | PendingIntent.FLAG_UPDATE_CURRENT);
         views.setOnClickPendingIntent(R.id.widgetBtnStop, stopPi);
 
+        // Snapshot button
+        Intent snapIntent = new Intent(ctx, SosWidget.class);
+        snapIntent.setAction(ACTION_WIDGET_SNAP);
+        PendingIntent snapPi = PendingIntent.getBroadcast(ctx, 12, snapIntent,
+                PendingIntent.FLAG_MUTABLE | PendingIntent.FLAG_UPDATE_CURRENT);
+        views.setOnClickPendingIntent(R.id.widgetBtnSnap, snapPi);
+
         mgr.updateAppWidget(widgetId, views);
     }
 }
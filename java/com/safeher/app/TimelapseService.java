@@ -0,0 +1,513 @@
+package com.safeher.app;
+
+import android.app.NotificationChannel;
+import android.app.NotificationManager;
+import android.app.PendingIntent;
+import android.app.Service;
+import android.content.Context;
+import android.content.Intent;
+import android.content.SharedPreferences;
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.graphics.Paint;
+import android.graphics.Rect;
+import android.media.ExifInterface;
+import android.media.Image;
+import android.media.MediaCodec;
+import android.media.MediaCodecInfo;
+import android.media.MediaFormat;
+import android.media.MediaMuxer;
+import android.os.IBinder;
+import android.os.SystemClock;
+import android.util.Log;
+
+import androidx.core.app.NotificationCompat;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.PrintWriter;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * TimelapseService
+ *
+ * After an incident, compacts its CAM_*.jpg photos (up to 60 per SOS) into
+ * one H.264 timelapse, TL_<ts>.mp4, at FRAME_MS per photo. One MP4 is a
+ * fraction of the size of the JPEGs and a single file to hand to police.
+ *
+ * TIMESTAMPS: the timelapse plays at an even pace, so each photo's real
+ * capture time (EXIF DateTimeOriginal + SubSec + offset, else the file
+ * time) is kept twice: as a timed metadata track in the MP4 (one
+ * "<capturedAtMs> <file>" sample per video frame, MIME META_MIME) and in a
+ * TL_<ts>.csv sidecar that also lists the original files. The first
+ * photo's GPS position becomes the MP4's location.
+ *
+ * ORIGINALS are never deleted automatically. The "ready" notification has
+ * a "Delete originals" action; only that deletes the photos (and their
+ * thumbnails) listed in the sidecar.
+ *
+ * QUEUE: CameraEvidenceService enqueue()s each finished incident as the
+ * list of photo names it saved, in PREF_PENDING. Only those files are
+ * compacted (and offered for deletion), so a snapshot or gesture hand-off
+ * photo taken around the same time is never swept in. If the service may not start from the background
+ * at that moment, resumePending() (called by SosActivity) picks it up
+ * later. The MP4 is written as .part and renamed when complete, like
+ * VideoSegmentRecorder's segments.
+ */
+public class TimelapseService extends Service {
+
+    private static final String TAG = "TimelapseService";
+
+    public  static final String ACTION_DELETE_ORIGINALS = "com.safeher.app.TIMELAPSE_DELETE_ORIGINALS";
+    public  static final String EXTRA_SIDECAR = "sidecar";
+
+    public  static final String PREFIX     = "TL_";
+    public  static final int    MIN_FRAMES = 4;
+    private static final String PART       = ".part";
+    private static final String META_MIME  = "application/x-savesouls-frame-time";
+
+    private static final String PREF_PENDING = "timelapse_pending";   // "a.jpg,b.jpg;c.jpg,d.jpg"
+    private static final String CHANNEL_ID   = "timelapse_channel";
+    private static final int    NOTIF_ID     = 1005;
+    private static final int    READY_ID     = 20_000;   // + hash of the sidecar name
+
+    private static final long   FRAME_MS           = 500;      // 2 photos per second of video
+    private static final int    MAX_WIDTH          = 1280;
+    private static final int    BITRATE_BPS        = 800_000;  // ~50 KB per photo
+    private static final int    I_FRAME_INTERVAL_S = 1;
+    private static final long   TIMEOUT_US         = 10_000;
+    private static final int    EOS_TRIES          = 200;      // × TIMEOUT_US
+
+    private ExecutorService worker;
+
+    // Worker thread only
+    private MediaCodec  codec;
+    private MediaMuxer  muxer;
+    private int         videoTrack = -1, metaTrack = -1;
+    private boolean     muxing;
+    private final MediaCodec.BufferInfo info = new MediaCodec.BufferInfo();
+
+    /** One photo of the incident. */
+    private static final class Frame {
+        final File file;
+        final long capturedAt;
+
+        Frame(File file, long capturedAt) {
+            this.file       = file;
+            this.capturedAt = capturedAt;
+        }
+    }
+
+    // ── Queue ─────────────────────────────────────────────────────────────────
+
+    /** Queue one incident's photos (names in the evidence folder) for compaction. */
+    public static void enqueue(Context ctx, List<String> photos) {
+        if (photos.isEmpty()) return;
+        StringBuilder entry = new StringBuilder();
+        for (String name : photos) {
+            if (entry.length() > 0) entry.append(',');
+            entry.append(name);
+        }
+        synchronized (TimelapseService.class) {
+            SharedPreferences prefs = ctx.getSharedPreferences("SaveSouls", Context.MODE_PRIVATE);
+            String cur = prefs.getString(PREF_PENDING, "");
+            prefs.edit().putString(PREF_PENDING,
+                (cur.isEmpty() ? "" : cur + ";") + entry).apply();
+        }
+        resumePending(ctx);
+    }
+
+    /** Start the service if incidents are waiting. */
+    public static void resumePending(Context ctx) {
+        if (ctx.getSharedPreferences("SaveSouls", Context.MODE_PRIVATE)
+                .getString(PREF_PENDING, "").isEmpty()) return;
+        try {
+            ctx.startForegroundService(new Intent(ctx, TimelapseService.class));
+        } catch (Exception e) {
+            // Background start not allowed right now; stays queued
+            Log.w(TAG, "Timelapse deferred: " + e.getMessage());
+        }
+    }
+
+    /** Remove and return the oldest queued incident's photo names, or null. */
+    private static String[] takePending(Context ctx) {
+        synchronized (TimelapseService.class) {
+            SharedPreferences prefs = ctx.getSharedPreferences("SaveSouls", Context.MODE_PRIVATE);
+            String cur = prefs.getString(PREF_PENDING, "");
+            while (!cur.isEmpty()) {
+                int cut = cur.indexOf(';');
+                String head = cut < 0 ? cur : cur.substring(0, cut);
+                cur = cut < 0 ? "" : cur.substring(cut + 1);
+                prefs.edit().putString(PREF_PENDING, cur).apply();
+                if (!head.isEmpty()) return head.split(",");
+            }
+            return null;
+        }
+    }
+
+    // ── Lifecycle ─────────────────────────────────────────────────────────────
+
+    @Override
+    public void onCreate() {
+        super.onCreate();
+        NotificationChannel ch = new NotificationChannel(
+            CHANNEL_ID, "Evidence Timelapse", NotificationManager.IMPORTANCE_LOW);
+        ch.setDescription("Compacting evidence photos after an SOS");
+        getSystemService(NotificationManager.class).createNotificationChannel(ch);
+        startForeground(NOTIF_ID, new NotificationCompat.Builder(this, CHANNEL_ID)
+            .setContentTitle("SaveSouls — Evidence")
+            .setContentText("🎞️ Compacting photos into a timelapse…")
+            .setSmallIcon(android.R.drawable.ic_menu_camera)
+            .setOngoing(true)
+            .build());
+        worker = Executors.newSingleThreadExecutor();
+    }
+
+    @Override
+    public int onStartCommand(Intent intent, int flags, int startId) {
+        String action = intent != null ? intent.getAction() : null;
+        if (ACTION_DELETE_ORIGINALS.equals(action)) {
+            String sidecar = intent.getStringExtra(EXTRA_SIDECAR);
+            worker.execute(() -> {
+                if (sidecar != null) deleteOriginals(new File(sidecar));
+                stopSelf(startId);
+            });
+        } else {
+            worker.execute(() -> {
+                String[] job;
+                while ((job = takePending(this)) != null) compact(job);
+                stopSelf(startId);
+            });
+        }
+        return START_NOT_STICKY;
+    }
+
+    @Override
+    public void onDestroy() {
+        super.onDestroy();
+        if (worker != null) worker.shutdown();
+    }
+
+    @Override public IBinder onBind(Intent intent) { return null; }
+
+    // ── Compaction ────────────────────────────────────────────────────────────
+
+    private void compact(String[] photos) {
+        File dir = evidenceDir();
+        List<Frame> frames = new ArrayList<>(photos.length);
+        for (String name : photos) {
+            // Names come from our own queue, but stay inside the folder regardless
+            if (!name.startsWith("CAM_") || name.contains(File.separator)) continue;
+            File f = new File(dir, name);
+            if (f.isFile()) frames.add(new Frame(f, captureTime(f)));   // the user may have deleted some
+        }
+        if (frames.size() < MIN_FRAMES) {
+            Log.d(TAG, "Incident has " + frames.size() + " photo(s) left, not compacted");
+            return;
+        }
+        Collections.sort(frames, (a, b) -> Long.compare(a.capturedAt, b.capturedAt));
+
+        String name = PREFIX + new SimpleDateFormat("yyyyMMdd_HHmmss", Locale.US)
+            .format(new Date(frames.get(0).capturedAt));
+        File out     = new File(dir, name + ".mp4");
+        File part    = new File(dir, out.getName() + PART);
+        File sidecar = new File(dir, name + ".csv");
+
+        long t0 = SystemClock.elapsedRealtime();
+        List<Frame> encoded = new ArrayList<>(frames.size());
+        try {
+            encode(frames, part, encoded);
+        } catch (Exception e) {
+            Log.e(TAG, "Timelapse failed: " + e.getMessage());
+            part.delete();
+            return;
+        }
+        if (encoded.size() < MIN_FRAMES || !part.renameTo(out)) {
+            Log.w(TAG, "Timelapse discarded, " + encoded.size() + " frame(s) encoded");
+            part.delete();
+            return;
+        }
+        if (!writeSidecar(sidecar, out, encoded)) return;
+
+        long originals = 0;
+        for (Frame f : encoded) originals += f.file.length();
+        Log.d(TAG, out.getName() + ": " + encoded.size() + " photos, " + kb(originals) + " → "
+            + kb(out.length()) + " in " + (SystemClock.elapsedRealtime() - t0) + "ms");
+        notifyReady(out, sidecar, encoded.size(), originals);
+    }
+
+    /** Encode the photos that decode into {@code part}; they are added to {@code encoded}. */
+    private void encode(List<Frame> frames, File part, List<Frame> encoded) throws Exception {
+        int[] size = outputSize(frames);
+        if (size == null) return;
+        int w = size[0], h = size[1];
+
+        MediaFormat fmt = MediaFormat.createVideoFormat(MediaFormat.MIMETYPE_VIDEO_AVC, w, h);
+        fmt.setInteger(MediaFormat.KEY_COLOR_FORMAT,
+            MediaCodecInfo.CodecCapabilities.COLOR_FormatYUV420Flexible);
+        fmt.setInteger(MediaFormat.KEY_BIT_RATE, BITRATE_BPS);
+        fmt.setInteger(MediaFormat.KEY_FRAME_RATE, (int) (1000 / FRAME_MS));
+        fmt.setInteger(MediaFormat.KEY_I_FRAME_INTERVAL, I_FRAME_INTERVAL_S);
+
+        codec = MediaCodec.createEncoderByType(MediaFormat.MIMETYPE_VIDEO_AVC);
+        muxer = new MediaMuxer(part.getAbsolutePath(), MediaMuxer.OutputFormat.MUXER_OUTPUT_MPEG_4);
+        muxing = false;
+        Bitmap canvasBm = Bitmap.createBitmap(w, h, Bitmap.Config.ARGB_8888);
+        try {
+            float[] latLng = firstLatLng(frames);
+            if (latLng != null) muxer.setLocation(latLng[0], latLng[1]);
+            codec.configure(fmt, null, null, MediaCodec.CONFIGURE_FLAG_ENCODE);
+            codec.start();
+
+            Canvas canvas = new Canvas(canvasBm);
+            int[] argb = new int[w * h];
+            for (Frame f : frames) {
+                if (!draw(f.file, canvas, w, h)) continue;
+                canvasBm.getPixels(argb, 0, w, 0, 0, w, h);
+                int in = nextInput(encoded);
+                Image img = codec.getInputImage(in);
+                Image.Plane[] p = img.getPlanes();
+                YuvConverter.argbToYuv420(argb, w, h,
+                    p[0].getBuffer(), p[0].getRowStride(), p[0].getPixelStride(),
+                    p[1].getBuffer(), p[2].getBuffer(), p[1].getRowStride(), p[1].getPixelStride());
+                codec.queueInputBuffer(in, 0, w * h * 3 / 2, encoded.size() * FRAME_MS * 1000, 0);
+                encoded.add(f);
+                drain(false, encoded);
+            }
+            if (encoded.isEmpty()) return;
+            codec.queueInputBuffer(nextInput(encoded), 0, 0, encoded.size() * FRAME_MS * 1000,
+                MediaCodec.BUFFER_FLAG_END_OF_STREAM);
+            drain(true, encoded);
+        } finally {
+            try { codec.stop(); } catch (Exception ignored) {}
+            codec.release();
+            codec = null;
+            if (muxing) {
+                try { muxer.stop(); } catch (Exception e) { Log.e(TAG, "Muxer stop failed: " + e.getMessage()); }
+            }
+            muxer.release();
+            muxer = null;
+            canvasBm.recycle();
+        }
+    }
+
+    private int nextInput(List<Frame> encoded) {
+        int in;
+        while ((in = codec.dequeueInputBuffer(TIMEOUT_US)) < 0) drain(false, encoded);
+        return in;
+    }
+
+    /** Move encoded output to the muxer; with {@code eos}, until the stream ends. */
+    private void drain(boolean eos, List<Frame> encoded) {
+        int waits = 0;
+        while (true) {
+            int out = codec.dequeueOutputBuffer(info, eos ? TIMEOUT_US : 0);
+            if (out == MediaCodec.INFO_TRY_AGAIN_LATER) {
+                if (!eos) return;
+                if (++waits > EOS_TRIES) {
+                    Log.w(TAG, "Encoder did not signal end of stream");
+                    return;
+                }
+                continue;
+            }
+            if (out == MediaCodec.INFO_OUTPUT_FORMAT_CHANGED) {
+                videoTrack = muxer.addTrack(codec.getOutputFormat());
+                MediaFormat meta = new MediaFormat();
+                meta.setString(MediaFormat.KEY_MIME, META_MIME);
+                metaTrack = muxer.addTrack(meta);
+                muxer.start();
+                muxing = true;
+                continue;
+            }
+            if (out < 0) continue;
+
+            ByteBuffer buf = codec.getOutputBuffer(out);
+            if (muxing && buf != null && info.size > 0
+                    && (info.flags & MediaCodec.BUFFER_FLAG_CODEC_CONFIG) == 0) {
+                writeFrameTime(info.presentationTimeUs, encoded);
+                muxer.writeSampleData(videoTrack, buf, info);
+            }
+            codec.releaseOutputBuffer(out, false);
+            if ((info.flags & MediaCodec.BUFFER_FLAG_END_OF_STREAM) != 0) return;
+        }
+    }
+
+    /** Metadata sample carrying the real capture time of the frame at {@code ptsUs}. */
+    private void writeFrameTime(long ptsUs, List<Frame> encoded) {
+        int i = (int) (ptsUs / (FRAME_MS * 1000));
+        if (i < 0 || i >= encoded.size()) return;
+        Frame f = encoded.get(i);
+        byte[] b = (f.capturedAt + " " + f.file.getName()).getBytes(StandardCharsets.UTF_8);
+        MediaCodec.BufferInfo m = new MediaCodec.BufferInfo();
+        m.set(0, b.length, ptsUs, 0);
+        muxer.writeSampleData(metaTrack, ByteBuffer.wrap(b), m);
+    }
+
+    // ── Frames ────────────────────────────────────────────────────────────────
+
+    /** Size of the first readable photo, capped at MAX_WIDTH, in multiples of 16. */
+    private static int[] outputSize(List<Frame> frames) {
+        for (Frame f : frames) {
+            BitmapFactory.Options o = new BitmapFactory.Options();
+            o.inJustDecodeBounds = true;
+            BitmapFactory.decodeFile(f.file.getAbsolutePath(), o);
+            if (o.outWidth <= 0) continue;
+            float scale = Math.min(1f, (float) MAX_WIDTH / o.outWidth);
+            int w = (int) (o.outWidth * scale) & ~15, h = (int) (o.outHeight * scale) & ~15;
+            if (w > 0 && h > 0) return new int[] { w, h };
+        }
+        return null;
+    }
+
+    /** Decode a photo and draw it letterboxed onto the w×h canvas. */
+    private static boolean draw(File photo, Canvas canvas, int w, int h) {
+        BitmapFactory.Options o = new BitmapFactory.Options();
+        o.inJustDecodeBounds = true;
+        BitmapFactory.decodeFile(photo.getAbsolutePath(), o);
+        if (o.outWidth <= 0) return false;
+        int sample = 1;
+        while (o.outWidth / (sample * 2) >= w && o.outHeight / (sample * 2) >= h) sample *= 2;
+        o = new BitmapFactory.Options();
+        o.inSampleSize = sample;
+        Bitmap bm = BitmapFactory.decodeFile(photo.getAbsolutePath(), o);
+        if (bm == null) return false;
+
+        float scale = Math.min((float) w / bm.getWidth(), (float) h / bm.getHeight());
+        int dw = Math.round(bm.getWidth() * scale), dh = Math.round(bm.getHeight() * scale);
+        int x = (w - dw) / 2, y = (h - dh) / 2;
+        canvas.drawColor(Color.BLACK);
+        canvas.drawBitmap(bm, null, new Rect(x, y, x + dw, y + dh), new Paint(Paint.FILTER_BITMAP_FLAG));
+        bm.recycle();
+        return true;
+    }
+
+    /** Capture time from EXIF (as written by ExifWriter or the camera), else the file time. */
+    private static long captureTime(File photo) {
+        try {
+            ExifInterface exif = new ExifInterface(photo.getAbsolutePath());
+            String dt = exif.getAttribute(ExifInterface.TAG_DATETIME_ORIGINAL);
+            if (dt != null) {
+                String offset = exif.getAttribute("OffsetTimeOriginal");
+                long t = offset != null
+                    ? new SimpleDateFormat("yyyy:MM:dd HH:mm:ssXXX", Locale.US).parse(dt + offset).getTime()
+                    : new SimpleDateFormat("yyyy:MM:dd HH:mm:ss", Locale.US).parse(dt).getTime();
+                String sub = exif.getAttribute(ExifInterface.TAG_SUBSEC_TIME_ORIGINAL);
+                if (sub != null && !sub.isEmpty()) t += Integer.parseInt((sub + "00").substring(0, 3));
+                return t;
+            }
+        } catch (Exception ignored) {}
+        return photo.lastModified();
+    }
+
+    private static float[] firstLatLng(List<Frame> frames) {
+        for (Frame f : frames) {
+            try {
+                float[] ll = new float[2];
+                if (new ExifInterface(f.file.getAbsolutePath()).getLatLong(ll)) return ll;
+            } catch (Exception ignored) {}
+        }
+        return null;
+    }
+
+    // ── Sidecar + originals ───────────────────────────────────────────────────
+
+    private boolean writeSidecar(File sidecar, File video, List<Frame> encoded) {
+        SimpleDateFormat iso = new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss.SSSXXX", Locale.US);
+        try (PrintWriter pw = new PrintWriter(new FileWriter(sidecar))) {
+            pw.println("# " + video.getName() + ": one row per video frame, originals listed by file");
+            pw.println("frame,video_ms,captured_at,captured_ms,file");
+            for (int i = 0; i < encoded.size(); i++) {
+                Frame f = encoded.get(i);
+                pw.println(i + "," + i * FRAME_MS + "," + iso.format(new Date(f.capturedAt))
+                    + "," + f.capturedAt + "," + f.file.getName());
+            }
+            return !pw.checkError();
+        } catch (Exception e) {
+            Log.e(TAG, "Sidecar failed: " + e.getMessage());
+            return false;
+        }
+    }
+
+    /** Delete the originals listed in a sidecar (the user confirmed). */
+    private void deleteOriginals(File sidecar) {
+        File dir = sidecar.getParentFile();
+        int deleted = 0;
+        long freed = 0;
+        try (BufferedReader r = new BufferedReader(new FileReader(sidecar))) {
+            String line;
+            while ((line = r.readLine()) != null) {
+                if (line.startsWith("#") || line.startsWith("frame,")) continue;
+                String name = line.substring(line.lastIndexOf(',') + 1);
+                if (!name.startsWith("CAM_") || name.contains(File.separator)) continue;
+                File photo = new File(dir, name);
+                long len = photo.length();
+                if (photo.delete()) {
+                    deleted++;
+                    freed += len;
+                }
+                EvidenceThumbs.delete(photo);
+            }
+        } catch (Exception e) {
+            Log.e(TAG, "Delete originals failed: " + e.getMessage());
+            return;
+        }
+        Log.d(TAG, "Deleted " + deleted + " original(s) of " + sidecar.getName() + ", " + kb(freed) + " freed");
+        getSystemService(NotificationManager.class).notify(readyId(sidecar),
+            new NotificationCompat.Builder(this, CHANNEL_ID)
+                .setContentTitle("🎞️ Evidence timelapse kept")
+                .setContentText(deleted + " original photo(s) deleted, " + kb(freed) + " freed")
+                .setSmallIcon(android.R.drawable.ic_menu_camera)
+                .setAutoCancel(true)
+                .build());
+    }
+
+    private void notifyReady(File video, File sidecar, int photos, long originalBytes) {
+        int id = readyId(sidecar);
+        Intent del = new Intent(this, TimelapseService.class)
+            .setAction(ACTION_DELETE_ORIGINALS)
+            .putExtra(EXTRA_SIDECAR, sidecar.getAbsolutePath());
+        PendingIntent delPi = PendingIntent.getService(this, id, del,
+            PendingIntent.FLAG_IMMUTABLE | PendingIntent.FLAG_UPDATE_CURRENT);
+
+        String text = photos + " photos → " + kb(video.length()) + " (originals " + kb(originalBytes) + ")";
+        getSystemService(NotificationManager.class).notify(id,
+            new NotificationCompat.Builder(this, CHANNEL_ID)
+                .setContentTitle("🎞️ Evidence timelapse ready")
+                .setContentText(text)
+                .setStyle(new NotificationCompat.BigTextStyle().bigText(text + "\n" + video.getName()
+                    + " — the original photos are kept until you delete them."))
+                .setSmallIcon(android.R.drawable.ic_menu_camera)
+                .addAction(android.R.drawable.ic_menu_delete, "Delete originals", delPi)
+                .build());
+    }
+
+    // ── Helpers ───────────────────────────────────────────────────────────────
+
+    private File evidenceDir() {
+        return new File(getExternalFilesDir(null), "SaveSouls_Evidence");
+    }
+
+    /** One notification per timelapse, so several incidents can wait for a decision. */
+    private static int readyId(File sidecar) {
+        return READY_ID + (sidecar.getName().hashCode() & 0x7FFF);
+    }
+
+    private static String kb(long bytes) {
+        return bytes >= 1024 * 1024
+            ? String.format(Locale.US, "%.1f MB", bytes / (1024f * 1024f))
+            : bytes / 1024 + " KB";
+    }
+}
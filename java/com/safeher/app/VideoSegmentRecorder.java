@@ -0,0 +1,286 @@
+package com.safeher.app;
+
+import android.media.MediaCodec;
+import android.media.MediaCodecInfo;
+import android.media.MediaFormat;
+import android.media.MediaMuxer;
+import android.os.Bundle;
+import android.os.Handler;
+import android.os.HandlerThread;
+import android.util.Log;
+import android.view.Surface;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.text.SimpleDateFormat;
+import java.util.ArrayDeque;
+import java.util.Date;
+import java.util.Locale;
+
+/**
+ * VideoSegmentRecorder
+ *
+ * H.264 evidence video in short, independent MP4 segments. The camera
+ * renders into the encoder's input Surface; encoded output is muxed on a
+ * dedicated thread, and a new segment starts on the first key frame after
+ * SEGMENT_MS (a sync frame is requested so segments stay close to length).
+ *
+ * CRASH SAFETY: a segment is written as VID_<ts>_<n>.mp4.part and renamed to
+ * .mp4 only after MediaMuxer.stop() has written its index, so every .mp4 in
+ * the folder is playable and a crash costs at most the open segment.
+ * A .part left by such a crash has no index and will not play, but its
+ * H.264 is the footage of the incident that was running when the app died
+ * and can be repaired offline. start() therefore quarantines it as
+ * VID_<ts>_<n>.mp4.broken (never deleted here) and counts it against
+ * MAX_SESSION_BYTES like a segment of this session.
+ *
+ * STORAGE BOUND: this session's segments are capped at MAX_SESSION_BYTES,
+ * and at least MIN_FREE_BYTES of the volume is left free. When either limit
+ * is hit the oldest segment is deleted — except the first one, which shows
+ * how the incident started. If that is not enough, recording stops.
+ *
+ * BITRATE_BPS at 720p is ~11 MB per minute, so a 30-minute incident fits.
+ */
+public class VideoSegmentRecorder {
+
+    private static final String TAG = "VideoSegmentRecorder";
+
+    public static final String PREFIX = "VID_";
+    public static final String EXT    = ".mp4";
+    private static final String PART  = ".part";
+    public  static final String BROKEN = ".broken";
+
+    private static final long SEGMENT_MS         = 15_000;
+    private static final int  BITRATE_BPS        = 1_500_000;
+    private static final int  FRAME_RATE         = 30;
+    private static final int  I_FRAME_INTERVAL_S = 2;
+    private static final long MAX_SESSION_BYTES  = 400L * 1024 * 1024;
+    private static final long MIN_FREE_BYTES     = 200L * 1024 * 1024;
+
+    private final File dir;
+    private final int  width, height, orientationHint;
+
+    private HandlerThread thread;
+    private Handler       handler;
+    private MediaCodec    codec;
+    private Surface       inputSurface;
+    private MediaFormat   outputFormat;
+
+    // Encoder thread only
+    private MediaMuxer muxer;
+    private File       partFile;
+    private int        track = -1;
+    private long       segmentStartUs;
+    private long       segmentBytes;
+    private boolean    syncRequested;
+    private int        segmentIndex = 0;
+    private long       sessionBytes = 0;
+    private final ArrayDeque<File> sessionSegments = new ArrayDeque<>();
+    private File       firstSegment;
+    private boolean    stopped;
+    private final SimpleDateFormat nameFormat =
+        new SimpleDateFormat("yyyyMMdd_HHmmss", Locale.US);
+
+    public VideoSegmentRecorder(File dir, int width, int height, int orientationHint) {
+        this.dir             = dir;
+        this.width           = width;
+        this.height          = height;
+        this.orientationHint = orientationHint;
+    }
+
+    /**
+     * Configure and start the encoder.
+     *
+     * @return the Surface the camera should render into
+     */
+    public Surface start() throws IOException {
+        quarantineLeftoverParts();
+        thread = new HandlerThread("VideoEncoder");
+        thread.start();
+        handler = new Handler(thread.getLooper());
+
+        MediaFormat fmt = MediaFormat.createVideoFormat(
+            MediaFormat.MIMETYPE_VIDEO_AVC, width, height);
+        fmt.setInteger(MediaFormat.KEY_COLOR_FORMAT,
+            MediaCodecInfo.CodecCapabilities.COLOR_FormatSurface);
+        fmt.setInteger(MediaFormat.KEY_BIT_RATE, BITRATE_BPS);
+        fmt.setInteger(MediaFormat.KEY_FRAME_RATE, FRAME_RATE);
+        fmt.setInteger(MediaFormat.KEY_I_FRAME_INTERVAL, I_FRAME_INTERVAL_S);
+
+        codec = MediaCodec.createEncoderByType(MediaFormat.MIMETYPE_VIDEO_AVC);
+        codec.setCallback(new MediaCodec.Callback() {
+            @Override public void onInputBufferAvailable(MediaCodec c, int index) {
+                // Surface input — never called
+            }
+            @Override public void onOutputBufferAvailable(MediaCodec c, int index,
+                                                          MediaCodec.BufferInfo info) {
+                onOutput(index, info);
+            }
+            @Override public void onOutputFormatChanged(MediaCodec c, MediaFormat format) {
+                outputFormat = format;
+            }
+            @Override public void onError(MediaCodec c, MediaCodec.CodecException e) {
+                Log.e(TAG, "Encoder error: " + e.getMessage());
+                handler.post(VideoSegmentRecorder.this::shutdown);
+            }
+        }, handler);
+        codec.configure(fmt, null, null, MediaCodec.CONFIGURE_FLAG_ENCODE);
+        inputSurface = codec.createInputSurface();
+        codec.start();
+        Log.d(TAG, "Encoding " + width + "x" + height + " @ " + BITRATE_BPS / 1000 + " kbps");
+        return inputSurface;
+    }
+
+    /** Unfinished segments of a session that died before MediaMuxer.stop(). */
+    private void quarantineLeftoverParts() {
+        File[] parts = dir.listFiles(f -> f.getName().startsWith(PREFIX)
+            && f.getName().endsWith(EXT + PART));
+        if (parts == null) return;
+        long kept = 0;
+        for (File f : parts) {
+            String n = f.getName();
+            File broken = new File(dir, n.substring(0, n.length() - PART.length()) + BROKEN);
+            kept += f.length();
+            if (!f.renameTo(broken)) Log.w(TAG, "Rename failed " + n + ", left as is");
+        }
+        sessionBytes += kept;
+        if (parts.length > 0) {
+            Log.w(TAG, "Quarantined " + parts.length + " unfinished segment(s) as " + EXT + BROKEN
+                + ", " + kept / 1024 + " KB counted against the session cap");
+        }
+    }
+
+    /** Finish the open segment and release the encoder. Blocks briefly. */
+    public void stop() {
+        if (handler == null) return;
+        handler.post(this::shutdown);
+        thread.quitSafely();
+        try { thread.join(2000); } catch (InterruptedException ignored) {}
+        handler = null;
+    }
+
+    public int getSegmentCount() { return segmentIndex; }
+
+    // ── Encoder thread ────────────────────────────────────────────────────────
+
+    private void onOutput(int index, MediaCodec.BufferInfo info) {
+        if (stopped) return;
+        try {
+            if ((info.flags & MediaCodec.BUFFER_FLAG_CODEC_CONFIG) != 0 || info.size == 0) {
+                codec.releaseOutputBuffer(index, false);
+                return;
+            }
+            boolean key = (info.flags & MediaCodec.BUFFER_FLAG_KEY_FRAME) != 0;
+            long segUs = info.presentationTimeUs - segmentStartUs;
+
+            if (muxer == null || (key && segUs >= SEGMENT_MS * 1000)) {
+                if (!key) {
+                    // A segment must open on a key frame
+                    codec.releaseOutputBuffer(index, false);
+                    requestSyncFrame();
+                    return;
+                }
+                finishSegment();
+                if (!openSegment(info.presentationTimeUs)) {
+                    codec.releaseOutputBuffer(index, false);
+                    shutdown();
+                    return;
+                }
+            } else if (segUs >= SEGMENT_MS * 1000) {
+                requestSyncFrame();
+            }
+
+            ByteBuffer buf = codec.getOutputBuffer(index);
+            if (buf != null) {
+                muxer.writeSampleData(track, buf, info);
+                segmentBytes += info.size;
+            }
+            codec.releaseOutputBuffer(index, false);
+        } catch (Exception e) {
+            Log.e(TAG, "Output failed: " + e.getMessage());
+        }
+    }
+
+    private void requestSyncFrame() {
+        if (syncRequested) return;
+        syncRequested = true;
+        Bundle b = new Bundle();
+        b.putInt(MediaCodec.PARAMETER_KEY_REQUEST_SYNC_FRAME, 0);
+        codec.setParameters(b);
+    }
+
+    private boolean openSegment(long startUs) {
+        if (outputFormat == null) return false;
+        if (!makeRoom()) {
+            Log.w(TAG, "Storage bound reached, stopping video");
+            return false;
+        }
+        segmentIndex++;
+        String name = PREFIX + nameFormat.format(new Date()) + "_" + segmentIndex + EXT;
+        partFile = new File(dir, name + PART);
+        try {
+            muxer = new MediaMuxer(partFile.getAbsolutePath(),
+                MediaMuxer.OutputFormat.MUXER_OUTPUT_MPEG_4);
+            muxer.setOrientationHint(orientationHint);
+            track = muxer.addTrack(outputFormat);
+            muxer.start();
+        } catch (Exception e) {
+            Log.e(TAG, "Segment open failed: " + e.getMessage());
+            muxer = null;
+            return false;
+        }
+        segmentStartUs = startUs;
+        segmentBytes   = 0;
+        syncRequested  = false;
+        return true;
+    }
+
+    private void finishSegment() {
+        if (muxer == null) return;
+        try {
+            muxer.stop();
+        } catch (Exception e) {
+            Log.e(TAG, "Segment stop failed: " + e.getMessage());
+        }
+        muxer.release();
+        muxer = null;
+
+        String part = partFile.getName();
+        File done = new File(dir, part.substring(0, part.length() - PART.length()));
+        if (partFile.renameTo(done)) {
+            sessionSegments.add(done);
+            if (firstSegment == null) firstSegment = done;
+            sessionBytes += done.length();
+            Log.d(TAG, "Segment saved: " + done.getName() + " (" + segmentBytes / 1024 + " KB)");
+        }
+        partFile = null;
+    }
+
+    /** Delete old segments (never the first) until both storage limits hold. */
+    private boolean makeRoom() {
+        long needed = BITRATE_BPS / 8L * SEGMENT_MS / 1000 * 2;   // next segment, with slack
+        while (sessionBytes + needed > MAX_SESSION_BYTES
+                || dir.getUsableSpace() - needed < MIN_FREE_BYTES) {
+            File oldest = null;
+            for (File f : sessionSegments) {
+                if (f != firstSegment) { oldest = f; break; }
+            }
+            if (oldest == null) return false;
+            sessionSegments.remove(oldest);
+            sessionBytes -= oldest.length();
+            if (oldest.delete()) Log.d(TAG, "Rolled off " + oldest.getName());
+        }
+        return true;
+    }
+
+    private void shutdown() {
+        if (stopped) return;
+        stopped = true;
+        try { codec.stop(); } catch (Exception ignored) {}
+        finishSegment();
+        try { codec.release(); } catch (Exception ignored) {}
+        if (inputSurface != null) inputSurface.release();
+        Log.d(TAG, "Video stopped, " + sessionSegments.size() + " segment(s) kept");
+    }
+}
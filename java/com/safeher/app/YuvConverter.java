@@ -0,0 +1,140 @@
+package com.safeher.app;
+
+import java.nio.ByteBuffer;
+
+/**
+ * YuvConverter
+ *
+ * Packs the three planes of a YUV_420_888 frame (any row/pixel stride) into
+ * a tightly packed NV21 array, which is what android.graphics.YuvImage
+ * expects for JPEG encoding. Pure Java so it can be exercised on the JVM.
+ */
+public final class YuvConverter {
+
+    private YuvConverter() {}
+
+    /** Bytes needed for an NV21 frame of the given size. */
+    public static int nv21Size(int width, int height) {
+        return width * height + 2 * ((width + 1) / 2) * ((height + 1) / 2);
+    }
+
+    /**
+     * @param out reused when large enough, otherwise a new array is returned
+     * @return the NV21 array (Y plane followed by interleaved V/U)
+     */
+    public static byte[] toNv21(int width, int height,
+                                ByteBuffer y, int yRowStride, int yPixStride,
+                                ByteBuffer u, ByteBuffer v, int uvRowStride, int uvPixStride,
+                                byte[] out) {
+        int size = nv21Size(width, height);
+        if (out == null || out.length < size) out = new byte[size];
+
+        int o = 0;
+        if (yPixStride == 1) {
+            // Fast path: copy whole rows
+            for (int row = 0; row < height; row++) {
+                y.position(row * yRowStride);
+                y.get(out, o, width);
+                o += width;
+            }
+            y.rewind();
+        } else {
+            for (int row = 0; row < height; row++) {
+                int base = row * yRowStride;
+                for (int col = 0; col < width; col++) out[o++] = y.get(base + col * yPixStride);
+            }
+        }
+
+        int cw = (width + 1) / 2, ch = (height + 1) / 2;
+        for (int row = 0; row < ch; row++) {
+            int base = row * uvRowStride;
+            for (int col = 0; col < cw; col++) {
+                int idx = base + col * uvPixStride;
+                out[o++] = v.get(idx);
+                out[o++] = u.get(idx);
+            }
+        }
+        return out;
+    }
+
+    /**
+     * Downscale an NV21 frame by two in each direction, for the lower rungs
+     * of the quality ladder.
+     *
+     * @param out at least nv21Size(width / 2, height / 2) bytes
+     */
+    public static void halveNv21(byte[] src, int width, int height, byte[] out) {
+        shrinkNv21(src, width, height, 2, out);
+    }
+
+    /**
+     * Downscale an NV21 frame by an integer factor: box average for luma,
+     * nearest chroma pair (chroma detail is lost in a JPEG anyway).
+     *
+     * @param out at least nv21Size(width / factor, height / factor) bytes
+     */
+    public static void shrinkNv21(byte[] src, int width, int height, int factor, byte[] out) {
+        int w2 = width / factor, h2 = height / factor;
+        int area = factor * factor, o = 0;
+        for (int row = 0; row < h2; row++) {
+            for (int col = 0; col < w2; col++) {
+                int sum = 0;
+                for (int dy = 0; dy < factor; dy++) {
+                    int a = (row * factor + dy) * width + col * factor;
+                    for (int dx = 0; dx < factor; dx++) sum += src[a + dx] & 0xFF;
+                }
+                out[o++] = (byte) ((sum + area / 2) / area);
+            }
+        }
+        int cw = (width + 1) / 2, ch = (height + 1) / 2;
+        int cw2 = (w2 + 1) / 2, ch2 = (h2 + 1) / 2;
+        int uv = width * height;
+        for (int row = 0; row < ch2; row++) {
+            int base = uv + Math.min(factor * row, ch - 1) * cw * 2;
+            for (int col = 0; col < cw2; col++) {
+                int idx = base + Math.min(factor * col, cw - 1) * 2;
+                out[o++] = src[idx];
+                out[o++] = src[idx + 1];
+            }
+        }
+    }
+
+    /**
+     * Write ARGB pixels into YUV 4:2:0 planes of any row/pixel stride (e.g. a
+     * MediaCodec input Image), BT.601 limited range. Chroma is the average of
+     * each 2x2 block.
+     */
+    public static void argbToYuv420(int[] argb, int width, int height,
+                                    ByteBuffer y, int yRowStride, int yPixStride,
+                                    ByteBuffer u, ByteBuffer v, int uvRowStride, int uvPixStride) {
+        for (int row = 0; row < height; row++) {
+            int o = row * yRowStride;
+            for (int col = 0; col < width; col++) {
+                int c = argb[row * width + col];
+                int r = (c >> 16) & 0xFF, g = (c >> 8) & 0xFF, b = c & 0xFF;
+                y.put(o + col * yPixStride, (byte) (((66 * r + 129 * g + 25 * b + 128) >> 8) + 16));
+            }
+        }
+        for (int row = 0; row < height / 2; row++) {
+            int o = row * uvRowStride;
+            for (int col = 0; col < width / 2; col++) {
+                int r = 0, g = 0, b = 0;
+                for (int dy = 0; dy < 2; dy++) {
+                    int a = (row * 2 + dy) * width + col * 2;
+                    for (int dx = 0; dx < 2; dx++) {
+                        int c = argb[a + dx];
+                        r += (c >> 16) & 0xFF;
+                        g += (c >> 8) & 0xFF;
+                        b += c & 0xFF;
+                    }
+                }
+                r >>= 2;
+                g >>= 2;
+                b >>= 2;
+                int i = o + col * uvPixStride;
+                u.put(i, (byte) (((-38 * r - 74 * g + 112 * b + 128) >> 8) + 128));
+                v.put(i, (byte) (((112 * r - 94 * g - 18 * b + 128) >> 8) + 128));
+            }
+        }
+    }
+}
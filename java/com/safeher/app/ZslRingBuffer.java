@@ -0,0 +1,122 @@
+package com.safeher.app;
+
+import java.nio.ByteBuffer;
+
+/**
+ * ZslRingBuffer
+ *
+ * Zero-shutter-lag store for CameraEvidenceService: the last few frames of
+ * the repeating YUV stream, packed as NV21 into slots allocated once. A
+ * photo is then taken by picking a frame that already exists instead of
+ * issuing a new still capture and waiting for AF/AE.
+ *
+ * Each slot remembers the sensor timestamp (to match capture results) and
+ * the arrival time on the elapsedRealtime clock (to find the frame nearest
+ * a given moment). Frames whose capture result reported converged AE and
+ * focused AF are preferred.
+ *
+ * The camera thread writes and any thread may read; access is synchronized
+ * and readers get a copy, so a slot is never overwritten mid-encode.
+ */
+public class ZslRingBuffer {
+
+    // Remembered "converged" sensor timestamps; results may arrive before
+    // or after their image, so these are matched lazily when picking
+    private static final int GOOD_HISTORY = 16;
+
+    private final int      width, height;
+    private final byte[][] slots;
+    private final long[]   sensorTs;
+    private final long[]   arrivedAt;
+    private int head  = 0;   // next slot to write
+    private int count = 0;
+
+    private final long[] goodTs = new long[GOOD_HISTORY];
+    private int goodHead = 0;
+
+    public ZslRingBuffer(int width, int height, int capacity) {
+        this.width     = width;
+        this.height    = height;
+        int size       = YuvConverter.nv21Size(width, height);
+        this.slots     = new byte[capacity][size];
+        this.sensorTs  = new long[capacity];
+        this.arrivedAt = new long[capacity];
+    }
+
+    public int getWidth()  { return width; }
+
+    public int getHeight() { return height; }
+
+    /** Bytes needed by a caller's buffer for {@link #copyBest}. */
+    public int frameSize() { return slots[0].length; }
+
+    public synchronized int size() { return count; }
+
+    /** Pack one YUV_420_888 frame into the oldest slot. Camera thread. */
+    public synchronized void offer(ByteBuffer y, int yRowStride, int yPixStride,
+                                   ByteBuffer u, ByteBuffer v, int uvRowStride, int uvPixStride,
+                                   long sensorTimestampNs, long arrivedAtMs) {
+        YuvConverter.toNv21(width, height, y, yRowStride, yPixStride,
+            u, v, uvRowStride, uvPixStride, slots[head]);
+        sensorTs[head]  = sensorTimestampNs;
+        arrivedAt[head] = arrivedAtMs;
+        head = (head + 1) % slots.length;
+        if (count < slots.length) count++;
+    }
+
+    /** Forget all frames (e.g. after the camera was closed and reopened). */
+    public synchronized void clear() { count = 0; }
+
+    /** Record that the frame with this sensor timestamp had AE/AF settled. */
+    public synchronized void markConverged(long sensorTimestampNs) {
+        goodTs[goodHead] = sensorTimestampNs;
+        goodHead = (goodHead + 1) % GOOD_HISTORY;
+    }
+
+    /**
+     * Copy the best frame for the moment {@code atMs} into {@code out}:
+     * the converged frame closest to that moment, or simply the closest
+     * frame when none has converged yet.
+     *
+     * @return arrival time of the copied frame, or -1 if the ring is empty
+     */
+    public synchronized long copyBest(long atMs, byte[] out) {
+        int best = -1;
+        long bestDist = Long.MAX_VALUE;
+        boolean bestGood = false;
+        for (int i = 0; i < count; i++) {
+            int s = (head - 1 - i + slots.length) % slots.length;
+            boolean good = isConverged(sensorTs[s]);
+            long dist = Math.abs(arrivedAt[s] - atMs);
+            if ((good && !bestGood) || (good == bestGood && dist < bestDist)) {
+                best = s;
+                bestDist = dist;
+                bestGood = good;
+            }
+        }
+        if (best < 0) return -1;
+        System.arraycopy(slots[best], 0, out, 0, slots[best].length);
+        return arrivedAt[best];
+    }
+
+    /**
+     * Copy up to {@code out.length} of the newest frames, newest first.
+     *
+     * @param arrivedOut receives each copied frame's arrival time
+     * @return number of frames copied
+     */
+    public synchronized int copyRecent(byte[][] out, long[] arrivedOut) {
+        int n = Math.min(out.length, count);
+        for (int i = 0; i < n; i++) {
+            int s = (head - 1 - i + slots.length) % slots.length;
+            System.arraycopy(slots[s], 0, out[i], 0, slots[s].length);
+            arrivedOut[i] = arrivedAt[s];
+        }
+        return n;
+    }
+
+    private boolean isConverged(long ts) {
+        for (long g : goodTs) if (g == ts && g != 0) return true;
+        return false;
+    }
+}
@@ -0,0 +1,348 @@
+package com.safeher.app;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+
+/**
+ * GestureReplayHarness
+ *
+ * Plain JVM entry point (no Android classes) that replays recorded Y-plane
+ * sequences through GestureFrameAnalyzer + GestureHoldTracker and reports
+ * true/false triggers, time-to-trigger and analysis throughput. It lives in
+ * the JVM test sources, so it is compiled against the app classes but never
+ * shipped in the APK.
+ *
+ * Record sequences from the debug line on the Finger Gesture screen, pull
+ * them from  Android/data/com.safeher.app/files/SaveSouls_GestureRec/  and run:
+ *
+ *   java com.safeher.app.GestureReplayHarness [--percentile 0.80] [--min-luma 40]
+ *        [--confirm 5] [--hold 4000] [--detector luma|skin|finger] <file.yseq | dir> ...
+ *
+ * Recorded sequences carry luma only, so chroma detectors fall back to luma
+ * during replay. For per-detector cost use the synthetic benchmark:
+ *
+ *   java com.safeher.app.GestureReplayHarness --bench
+ *
+ * Quick-cover commands (GestureGrammar) are checked at every AnalysisTier
+ * frame interval with synthetic cover timelines:
+ *
+ *   java com.safeher.app.GestureReplayHarness --grammar
+ *
+ * Pocket gating (CoverGate, as used by HandGestureService) is checked
+ * against a hand that covers the sensors mid-gesture:
+ *
+ *   java com.safeher.app.GestureReplayHarness --gating
+ */
+public class GestureReplayHarness {
+
+    private float percentile = LumaPresenceDetector.PRESENCE_PERCENTILE;
+    private int   minLuma = GestureFrameAnalyzer.MIN_ZONE_LUMA;
+    private int   confirm = 5;
+    private long  holdMs  = 4000;
+    private String detector = PresenceDetector.MODE_LUMA;
+
+    // Per-frame budget at the 30 fps the analyzer is fed with
+    private static final long FRAME_BUDGET_US = 33_333;
+
+    private int  truePos, falsePos, trueNeg, falseNeg;
+    private long totalFrames, totalAnalyseNs;
+    private final List<Long> triggerTimes = new ArrayList<>();
+
+    public static void main(String[] args) throws IOException {
+        GestureReplayHarness h = new GestureReplayHarness();
+        List<File> files = new ArrayList<>();
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--percentile": h.percentile = Float.parseFloat(args[++i]); break;
+                case "--min-luma": h.minLuma = Integer.parseInt(args[++i]); break;
+                case "--confirm":  h.confirm = Integer.parseInt(args[++i]); break;
+                case "--hold":     h.holdMs  = Long.parseLong(args[++i]);   break;
+                case "--detector": h.detector = args[++i];                  break;
+                case "--bench":    bench(); return;
+                case "--grammar":  System.exit(grammar() ? 0 : 1); return;
+                case "--gating":   System.exit(gating() ? 0 : 1); return;
+                default:           collect(new File(args[i]), files);
+            }
+        }
+        if (files.isEmpty()) {
+            System.err.println("usage: GestureReplayHarness [--percentile P] [--min-luma L]"
+                + " [--confirm N] [--hold MS] [--detector MODE] <file.yseq | dir> ..."
+                + "\n       GestureReplayHarness --bench"
+                + "\n       GestureReplayHarness --grammar"
+                + "\n       GestureReplayHarness --gating");
+            System.exit(2);
+        }
+        for (File f : files) h.replay(f);
+        h.printSummary();
+    }
+
+    private static void collect(File f, List<File> out) {
+        if (f.isDirectory()) {
+            File[] children = f.listFiles();
+            if (children == null) return;
+            Arrays.sort(children);
+            for (File c : children) collect(c, out);
+        } else if (f.getName().endsWith(GestureFrameRecorder.EXTENSION)) {
+            out.add(f);
+        }
+    }
+
+    /** Replay a single sequence and fold its outcome into the totals. */
+    void replay(File file) throws IOException {
+        try (GestureFrameRecorder.Reader r = new GestureFrameRecorder.Reader(file)) {
+            // Recorded frames are decimated, so scale the sampling step to
+            // hit the same source pixels the live analyzer would have read.
+            int step = Math.max(1, GestureFrameAnalyzer.STEP / r.decimation());
+            LumaPresenceDetector luma = new LumaPresenceDetector(percentile, minLuma);
+            PresenceDetector det = PresenceDetector.MODE_LUMA.equals(detector)
+                ? luma
+                : PresenceDetector.MODE_SKIN.equals(detector)
+                    ? new SkinTonePresenceDetector(luma)
+                    : PresenceDetector.create(detector);
+            GestureFrameAnalyzer analyzer = new GestureFrameAnalyzer(det, step);
+            GestureHoldTracker   tracker  = new GestureHoldTracker(confirm, holdMs);
+
+            long firstTs = -1, triggerAt = -1;
+            int  frames  = 0;
+            while (r.next()) {
+                if (firstTs < 0) firstTs = r.timestampMs();
+                long t0 = System.nanoTime();
+                boolean present = analyzer.analyse(
+                    r.frame(), r.width(), r.height(), r.width(), 1);
+                int event = tracker.onFrame(present, r.timestampMs());
+                totalAnalyseNs += System.nanoTime() - t0;
+                frames++;
+                if (event == GestureHoldTracker.EVENT_TRIGGER && triggerAt < 0)
+                    triggerAt = r.timestampMs() - firstTs;
+            }
+            totalFrames += frames;
+
+            boolean expected  = r.label() == GestureFrameRecorder.LABEL_GESTURE;
+            boolean triggered = triggerAt >= 0;
+            if (expected && triggered)   { truePos++;  triggerTimes.add(triggerAt); }
+            if (expected && !triggered)  falseNeg++;
+            if (!expected && triggered)  falsePos++;
+            if (!expected && !triggered) trueNeg++;
+
+            System.out.println(String.format(Locale.US,
+                "%-40s %-8s frames=%-5d %s skip=%.0f%%",
+                file.getName(), expected ? "GESTURE" : "NONE", frames,
+                triggered ? "TRIGGER@" + triggerAt + "ms" : "no-trigger",
+                analyzer.getSkipRatio() * 100f));
+        }
+    }
+
+    void printSummary() {
+        System.out.println();
+        System.out.println(String.format(Locale.US,
+            "detector=%s percentile=%.2f minLuma=%d confirm=%d hold=%dms",
+            detector, percentile, minLuma, confirm, holdMs));
+        System.out.println(String.format(Locale.US,
+            "true triggers=%d  missed=%d  false triggers=%d  correct rejects=%d",
+            truePos, falseNeg, falsePos, trueNeg));
+        if (!triggerTimes.isEmpty()) {
+            long sum = 0, max = 0;
+            for (long t : triggerTimes) { sum += t; max = Math.max(max, t); }
+            System.out.println(String.format(Locale.US,
+                "time-to-trigger avg=%dms max=%dms", sum / triggerTimes.size(), max));
+        }
+        if (totalAnalyseNs > 0) {
+            System.out.println(String.format(Locale.US,
+                "analysis %.1f µs/frame  →  %.0f frames/s",
+                totalAnalyseNs / 1000.0 / totalFrames,
+                totalFrames * 1e9 / totalAnalyseNs));
+        }
+    }
+
+    // ── Benchmark ─────────────────────────────────────────────────────────────
+
+    /**
+     * Times each detector on synthetic 640×480 YUV_420_888 frames with the
+     * motion gate off, so every frame pays the full detector cost. A bright,
+     * skin-coloured vertical bar sits in the upper zone so every detector
+     * (including the chroma pass and blob classification) does its full work.
+     */
+    static void bench() {
+        final int W = 640, H = 480, FRAMES = 3000;
+        ByteBuffer y = ByteBuffer.allocateDirect(W * H);
+        ByteBuffer u = ByteBuffer.allocateDirect(W * H / 4);
+        ByteBuffer v = ByteBuffer.allocateDirect(W * H / 4);
+        Random rnd = new Random(42);
+        for (int j = 0; j < H; j++) {
+            for (int i = 0; i < W; i++) {
+                boolean finger = j >= 24 && j < 200 && i >= 296 && i < 344;
+                y.put(j * W + i, (byte) ((finger ? 200 : 60) + rnd.nextInt(8)));
+            }
+        }
+        for (int k = 0; k < W * H / 4; k++) {
+            u.put(k, (byte) (100 + rnd.nextInt(4)));
+            v.put(k, (byte) (150 + rnd.nextInt(4)));
+        }
+
+        String[] modes = { PresenceDetector.MODE_LUMA, PresenceDetector.MODE_SKIN,
+                           PresenceDetector.MODE_FINGER };
+        System.out.println(String.format(Locale.US,
+            "%dx%d, %d frames, motion gate off, budget %d µs/frame", W, H, FRAMES, FRAME_BUDGET_US));
+        for (String mode : modes) {
+            GestureFrameAnalyzer a = new GestureFrameAnalyzer(
+                PresenceDetector.create(mode), GestureFrameAnalyzer.STEP);
+            a.setMotionGate(false);
+            // Warm up the JIT before timing
+            for (int n = 0; n < FRAMES; n++) a.analyse(y, W, H, W, 1, u, v, W / 2, 1);
+            long t0 = System.nanoTime();
+            int hits = 0;
+            for (int n = 0; n < FRAMES; n++)
+                if (a.analyse(y, W, H, W, 1, u, v, W / 2, 1)) hits++;
+            double us = (System.nanoTime() - t0) / 1000.0 / FRAMES;
+            System.out.println(String.format(Locale.US,
+                "%-6s %7.1f µs/frame  (%.2f%% of budget)  present=%d/%d",
+                mode, us, us * 100.0 / FRAME_BUDGET_US, hits, FRAMES));
+        }
+    }
+
+    // ── Grammar at each tier ──────────────────────────────────────────────────
+
+    // How long the user keeps covering after the "hold started" buzz, and
+    // how long the hand is away between covers of a burst
+    private static final long REACTION_MS = 300;
+    private static final long GAP_MS      = 500;
+
+    // Timeline marker: cover until the buzz, then REACTION_MS more
+    private static final long QUICK = -1;
+
+    /**
+     * Drives GestureHoldTracker → GestureGrammar the way HandGestureService
+     * does (HOLD_RESET schedules onQuiet, HOLD_STARTED cancels it) with a
+     * frame every tier interval. A quick cover lasts until the tracker
+     * confirms plus REACTION_MS, so it gets slower with the tier just as a
+     * real user waiting for the buzz would.
+     *
+     * @return true when every case gives the expected command at every tier
+     */
+    static boolean grammar() {
+        final int confirm = 5;
+        boolean ok = true;
+        for (AnalysisTier tier : AnalysisTier.TIERS) {
+            // FULL has no cap and runs at camera rate
+            long frame = Math.max(tier.minFrameIntervalMs, GestureGrammar.CAMERA_FRAME_MS);
+            Object[][] cases = {
+                // name, cover/gap durations (ms, alternating, starting covered), expected
+                { "2 quick covers", new long[] { QUICK, GAP_MS, QUICK }, GestureGrammar.COMMAND_CANCEL },
+                { "3 quick covers", new long[] { QUICK, GAP_MS, QUICK, GAP_MS, QUICK },
+                                    GestureGrammar.COMMAND_EVIDENCE },
+                { "single cover",   new long[] { QUICK }, GestureGrammar.COMMAND_NONE },
+                { "gap too long",   new long[] { QUICK, 3000 + confirm * frame, QUICK },
+                                    GestureGrammar.COMMAND_NONE },
+                { "3.5s hold",      new long[] { 3500 + confirm * frame, GAP_MS, QUICK },
+                                    GestureGrammar.COMMAND_NONE },
+            };
+            for (Object[] c : cases) {
+                int got = runGrammar(confirm, frame, (long[]) c[1]);
+                boolean pass = got == (Integer) c[2];
+                ok &= pass;
+                System.out.println(String.format(Locale.US, "%-8s %4dms  %-16s expected=%d got=%d  %s",
+                    tier.name, frame, c[0], (Integer) c[2], got, pass ? "ok" : "FAIL"));
+            }
+        }
+        return ok;
+    }
+
+    /** One cover timeline at a fixed frame interval; returns the command fired, if any. */
+    private static int runGrammar(int confirm, long frameMs, long[] segments) {
+        GestureHoldTracker tracker = new GestureHoldTracker(confirm, 4000);
+        GestureGrammar     grammar = new GestureGrammar(confirm);
+        grammar.setFrameIntervalMs(frameMs);
+
+        int  seg      = 0;      // even segments covered, odd ones away
+        long segEnd   = segments[0] == QUICK ? Long.MAX_VALUE : segments[0];
+        long idleEnd  = -1;     // set once the timeline has run out
+        long checkAt  = -1;
+        int  command  = GestureGrammar.COMMAND_NONE;
+        for (long now = 0; idleEnd < 0 || now <= idleEnd; now += frameMs) {
+            while (seg < segments.length && now >= segEnd) {
+                long start = segEnd;
+                if (++seg < segments.length)
+                    segEnd = segments[seg] == QUICK ? Long.MAX_VALUE : start + segments[seg];
+                else
+                    idleEnd = start + grammar.getQuietMs() + 10 * frameMs;
+            }
+            boolean present = seg < segments.length && (seg & 1) == 0;
+
+            if (checkAt >= 0 && now >= checkAt) {
+                checkAt = -1;
+                int cmd = grammar.onQuiet(now);
+                if (cmd != GestureGrammar.COMMAND_NONE) command = cmd;
+            }
+            switch (tracker.onFrame(present, now)) {
+                case GestureHoldTracker.EVENT_HOLD_STARTED:
+                    checkAt = -1;
+                    grammar.onEdge(true, now);
+                    if (segEnd == Long.MAX_VALUE) segEnd = now + REACTION_MS;
+                    break;
+                case GestureHoldTracker.EVENT_HOLD_RESET:
+                    grammar.onEdge(false, now);
+                    checkAt = now + grammar.getQuietMs();
+                    break;
+                case GestureHoldTracker.EVENT_TRIGGER:
+                    grammar.reset();
+                    return GestureGrammar.COMMAND_NONE;
+            }
+        }
+        return command;
+    }
+
+    // ── Pocket gating during a gesture ────────────────────────────────────────
+
+    /**
+     * Feeds CoverGate, the decision behind HandGestureService's gateCamera,
+     * with the sensor edges and a GestureHoldTracker: the camera should be
+     * idled CoverGate.DEBOUNCE_MS after covering unless a gesture is engaged.
+     *
+     * @return true when every case gates (or not) as expected
+     */
+    static boolean gating() {
+        final int  confirm = 5;
+        final long frame   = 33;
+        // name, presence on/off (ms), sensors covered from/to (ms), expect trigger, expect gated
+        Object[][] cases = {
+            { "covered during hold",    new long[] { 0, 6000 },    new long[] { 500, 6000 },
+                                        true,  false },
+            { "covered while confirming", new long[] { 0, 6000 },  new long[] { 50, 6000 },
+                                        true,  false },
+            { "pocket, no hand",        new long[] { -1, -1 },     new long[] { 0, 6000 },
+                                        false, true },
+            { "hand gone, still covered", new long[] { 0, 1000 },  new long[] { 500, 6000 },
+                                        false, true },
+        };
+        boolean ok = true;
+        for (Object[] c : cases) {
+            long[] hand = (long[]) c[1], cover = (long[]) c[2];
+            GestureHoldTracker tracker = new GestureHoldTracker(confirm, 4000);
+            CoverGate gate = new CoverGate();
+            boolean gated = false, triggered = false, covered = false;
+            for (long now = 0; now <= 6000; now += frame) {
+                boolean sensors = now >= cover[0] && now < cover[1];
+                if (sensors != covered) {
+                    covered = sensors;
+                    gate.onCoverChanged(covered, now);
+                }
+                if (gate.poll(now, tracker.isEngaged())) gated = true;
+                if (gated) break;
+                boolean present = now >= hand[0] && now < hand[1];
+                if (tracker.onFrame(present, now) == GestureHoldTracker.EVENT_TRIGGER)
+                    triggered = true;
+            }
+            boolean pass = triggered == (Boolean) c[3] && gated == (Boolean) c[4];
+            ok &= pass;
+            System.out.println(String.format(Locale.US, "%-26s trigger=%-5b gated=%-5b %s",
+                c[0], triggered, gated, pass ? "ok" : "FAIL"));
+        }
+        return ok;
+    }
+}